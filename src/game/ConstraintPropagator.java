@@ -0,0 +1,239 @@
+package game;
+
+import java.util.Arrays;
+
+//============================================================================
+//CONSTRAINT PROPAGATOR (clue rules + arc consistency over the constraint graph)
+//============================================================================
+/**
+ * Per-cell value domains (bit v-1 = value v) that stay consistent with the
+ * clues and with everything placed so far.
+ *
+ * Edge rules, applied once from the clues:
+ *  - clue k: the tower d cells in from that edge is at most N - k + 1 + d
+ *    (so clue 1 puts N at the edge and clue N forces 1, 2, ..., N);
+ *  - clue pair (front, back): N sits at least front - 1 cells from the front
+ *    and at least back - 1 cells from the back.
+ *
+ * Two kinds of revision then run to a fixpoint, from a queue of cells and a
+ * queue of lines:
+ *  - "different value" arcs over the TowersConstraintGraph edges: when a
+ *    domain shrinks to a single value, that value is removed from every
+ *    neighbour;
+ *  - clue filtering of a whole row or column: a value stays only if some
+ *    permutation in the VisibilityTable matches the line's clues and fits
+ *    every domain of the line. A line is revised again whenever one of its
+ *    domains shrinks, so the clues keep pruning as towers are placed.
+ *
+ * assign() narrows the domains incrementally for each placed tower; every
+ * change goes on a trail so undoTo() can roll back to a mark. The result is
+ * arc consistent per line, not a proof of solvability: an empty domain means
+ * the clues can no longer be met, but a dead end that needs search to expose
+ * can leave every domain non-empty.
+ */
+class ConstraintPropagator {
+ private final int size;
+ private final int fullMask;
+ private final TowersConstraintGraph graph;
+ private final VisibilityTable visibility;
+ private final int[] lineFront;   // clue pair per line: rows 0..N-1, then columns
+ private final int[] lineBack;
+ private final int[] domains;
+ private int emptyDomains = 0;
+
+ private int[] trail;         // (cell, old domain) pairs
+ private int trailSize = 0;
+ private final int[] queue;   // cells whose domain became a singleton
+ private int queueSize = 0;
+ private final boolean[] queued;
+ private final int[] lineQueue;   // clued lines with a domain that shrank
+ private int lineQueueSize = 0;
+ private final boolean[] lineQueued;
+ private final int[] lineDomains, support;  // scratch for filterLine
+
+ ConstraintPropagator(int[] top, int[] right, int[] bottom, int[] left) {
+     size = top.length;
+     fullMask = (1 << size) - 1;
+     graph = TowersConstraintGraph.forSize(size);
+     visibility = VisibilityTable.forSize(size);
+     lineFront = new int[2 * size];
+     lineBack = new int[2 * size];
+     for (int i = 0; i < size; i++) {
+         lineFront[i] = left[i];
+         lineBack[i] = right[i];
+         lineFront[size + i] = top[i];
+         lineBack[size + i] = bottom[i];
+     }
+     domains = new int[size * size];
+     Arrays.fill(domains, fullMask);
+     trail = new int[4 * size * size];
+     queue = new int[size * size];
+     queued = new boolean[size * size];
+     lineQueue = new int[2 * size];
+     lineQueued = new boolean[2 * size];
+     lineDomains = new int[size];
+     support = new int[size];
+
+     for (int i = 0; i < size; i++) {
+         applyEdgeRules(true, i, left[i], right[i]);
+         applyEdgeRules(false, i, top[i], bottom[i]);
+     }
+     for (int cell = 0; cell < domains.length; cell++) {
+         if (Integer.bitCount(domains[cell]) == 1) enqueue(cell);
+     }
+     for (int line = 0; line < 2 * size; line++) enqueueLine(line);
+     propagate();
+     trailSize = 0;  // the initial state is the floor for undoTo
+ }
+
+ private ConstraintPropagator(ConstraintPropagator other) {
+     size = other.size;
+     fullMask = other.fullMask;
+     graph = other.graph;
+     visibility = other.visibility;
+     lineFront = other.lineFront;
+     lineBack = other.lineBack;
+     domains = other.domains.clone();
+     emptyDomains = other.emptyDomains;
+     trail = other.trail.clone();
+     trailSize = other.trailSize;
+     queue = new int[other.queue.length];
+     queued = new boolean[other.queued.length];
+     lineQueue = new int[other.lineQueue.length];
+     lineQueued = new boolean[other.lineQueued.length];
+     lineDomains = new int[size];
+     support = new int[size];
+ }
+
+ ConstraintPropagator copy() {
+     return new ConstraintPropagator(this);
+ }
+
+ /** Take over other's domains and trail, reusing this propagator's arrays; both must be for the same clues. */
+ void resetTo(ConstraintPropagator other) {
+     System.arraycopy(other.domains, 0, domains, 0, domains.length);
+     emptyDomains = other.emptyDomains;
+     if (trail.length < other.trailSize) trail = new int[other.trail.length];
+     System.arraycopy(other.trail, 0, trail, 0, other.trailSize);
+     trailSize = other.trailSize;
+ }
+
+ // === EDGE RULES ===
+ /** Cell d steps in along a line, counted from its front (left/top) or back (right/bottom). */
+ private int cellAt(boolean isRow, int index, int d, boolean fromBack) {
+     int pos = fromBack ? size - 1 - d : d;
+     return isRow ? index * size + pos : pos * size + index;
+ }
+
+ private void applyEdgeRules(boolean isRow, int index, int front, int back) {
+     applyClueBound(isRow, index, front, false);
+     applyClueBound(isRow, index, back, true);
+
+     // The tallest tower needs front - 1 shorter ones before it and back - 1 after it
+     int tallest = 1 << (size - 1);
+     for (int pos = 0; pos < size; pos++) {
+         boolean fits = (front == 0 || pos >= front - 1) && (back == 0 || size - 1 - pos >= back - 1);
+         if (!fits) restrict(cellAt(isRow, index, pos, false), ~tallest);
+     }
+ }
+
+ private void applyClueBound(boolean isRow, int index, int clue, boolean fromBack) {
+     if (clue < 1 || clue > size) return;
+     for (int d = 0; d < size; d++) {
+         int maxValue = size - clue + 1 + d;
+         if (maxValue >= size) break;
+         restrict(cellAt(isRow, index, d, fromBack), (1 << maxValue) - 1);
+     }
+ }
+
+ // === PROPAGATION ===
+ /** Record that value was placed at cell and propagate. Returns false if some domain is now empty. */
+ public boolean assign(int cell, int value) {
+     restrict(cell, 1 << (value - 1));
+     propagate();
+     return isConsistent();
+ }
+
+ private void restrict(int cell, int mask) {
+     int old = domains[cell];
+     int updated = old & mask;
+     if (updated == old) return;
+     if (trailSize == trail.length) trail = Arrays.copyOf(trail, trail.length * 2);
+     trail[trailSize++] = cell;
+     trail[trailSize++] = old;
+     domains[cell] = updated;
+     if (updated == 0) emptyDomains++;
+     else if (Integer.bitCount(updated) == 1) enqueue(cell);
+     enqueueLine(cell / size);
+     enqueueLine(size + cell % size);
+ }
+
+ private void enqueue(int cell) {
+     if (queued[cell]) return;
+     queued[cell] = true;
+     queue[queueSize++] = cell;
+ }
+
+ // Lines without clues are left to the different-value arcs
+ private void enqueueLine(int line) {
+     if (lineQueued[line] || (lineFront[line] == 0 && lineBack[line] == 0)) return;
+     lineQueued[line] = true;
+     lineQueue[lineQueueSize++] = line;
+ }
+
+ // Singletons first (cheap), then one line at a time, until both queues are empty.
+ // A singleton neighbour has exactly one value with no support elsewhere, so
+ // revising a different-value arc removes just that value.
+ private void propagate() {
+     while (queueSize > 0 || lineQueueSize > 0) {
+         if (emptyDomains > 0) {  // no solution either way; skip the cascade
+             while (queueSize > 0) queued[queue[--queueSize]] = false;
+             while (lineQueueSize > 0) lineQueued[lineQueue[--lineQueueSize]] = false;
+             return;
+         }
+         if (queueSize > 0) {
+             int cell = queue[--queueSize];
+             queued[cell] = false;
+             int single = domains[cell];
+             if (Integer.bitCount(single) != 1) continue;
+             for (int i = graph.neighborStart(cell), end = graph.neighborEnd(cell); i < end; i++) {
+                 restrict(graph.neighborAt(i), ~single);
+             }
+         } else {
+             int line = lineQueue[--lineQueueSize];
+             lineQueued[line] = false;
+             filterLine(line);
+         }
+     }
+ }
+
+ private void filterLine(int line) {
+     boolean isRow = line < size;
+     int index = isRow ? line : line - size;
+     for (int pos = 0; pos < size; pos++) lineDomains[pos] = domains[cellAt(isRow, index, pos, false)];
+     visibility.supportedMasks(lineFront[line], lineBack[line], lineDomains, support);
+     for (int pos = 0; pos < size; pos++) {
+         if (support[pos] != lineDomains[pos]) restrict(cellAt(isRow, index, pos, false), support[pos]);
+     }
+ }
+
+ // === UNDO ===
+ public int mark() { return trailSize; }
+
+ /** Roll every domain back to how it was when {@code mark} was taken. */
+ public void undoTo(int mark) {
+     while (trailSize > mark) {
+         int old = trail[--trailSize];
+         int cell = trail[--trailSize];
+         if (domains[cell] == 0) emptyDomains--;
+         domains[cell] = old;
+     }
+ }
+
+ // === QUERIES ===
+ public int getDomain(int cell) { return domains[cell]; }
+ public int getDomain(int row, int col) { return domains[row * size + col]; }
+
+ /** False once some cell has no value left, i.e. the clues can no longer be met. */
+ public boolean isConsistent() { return emptyDomains == 0; }
+}
@@ -0,0 +1,66 @@
+package game;
+
+//============================================================================
+//DEADLINE (time limit, cancellation and progress for anytime searches)
+//============================================================================
+/**
+ * When a move search has to stop. A deadline expires at a System.nanoTime()
+ * instant or as soon as someone calls cancel(), whichever comes first;
+ * searches poll expired() and return the best move found so far.
+ *
+ * An optional listener hears about each improved best move as the search
+ * runs (e.g. every finished minimax iteration). It is called on the search's
+ * own thread and should return quickly.
+ */
+final class Deadline {
+ /** Progress callback: the current best move and its score in the strategy's own units. */
+ interface Listener {
+     void onProgress(int row, int col, int value, double score);
+ }
+
+ private final long endNanos;
+ private final Listener listener;
+ private volatile boolean cancelled;
+
+ private Deadline(long endNanos, Listener listener) {
+     this.endNanos = endNanos;
+     this.listener = listener;
+ }
+
+ static Deadline after(long nanos) {
+     return after(nanos, null);
+ }
+
+ static Deadline after(long nanos, Listener listener) {
+     long now = System.nanoTime();
+     long end = now + Math.max(0, nanos);
+     return new Deadline(end < now ? Long.MAX_VALUE : end, listener);  // a huge budget means no limit
+ }
+
+ static Deadline afterMillis(long millis) {
+     return after(millis * 1_000_000L);
+ }
+
+ /** No time limit; only cancel() stops the search. */
+ static Deadline none() {
+     return new Deadline(Long.MAX_VALUE, null);
+ }
+
+ public boolean expired() {
+     return cancelled || (endNanos != Long.MAX_VALUE && System.nanoTime() - endNanos >= 0);
+ }
+
+ public long remainingNanos() {
+     if (cancelled) return 0;
+     if (endNanos == Long.MAX_VALUE) return Long.MAX_VALUE;
+     return Math.max(0, endNanos - System.nanoTime());
+ }
+
+ /** Stop the search at its next check; safe to call from any thread. */
+ public void cancel() { cancelled = true; }
+ public boolean isCancelled() { return cancelled; }
+
+ void report(int row, int col, int value, double score) {
+     if (listener != null) listener.onProgress(row, col, value, score);
+ }
+}
@@ -0,0 +1,250 @@
+package game;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+
+//============================================================================
+//ENGINE BENCHMARK (microbenchmarks for the engine hot paths)
+//============================================================================
+/**
+ * Self-contained microbenchmark harness for the engine's hot paths:
+ * conflict checks, makeMove/undoMove, visibility validation, the legal-move
+ * scan and every greedy strategy's full-board evaluation, one position at a
+ * time and through PositionBatch. A batch.* operation covers the whole
+ * corpus, so divide by the corpus size to compare it with the others.
+ *
+ * All benchmarks run over one fixed corpus of mid-game positions. The corpus
+ * comes from generated puzzles (fixed seed), each played by a greedy human
+ * stand-in against StrategyScore until about half the board is filled.
+ * Every benchmark gets timed warmup iterations and then timed measurement
+ * iterations. It reports throughput (mean and spread over the measurement
+ * iterations) and bytes allocated per operation, read from the thread's
+ * allocation counter. Results feed a volatile sink so the JIT cannot drop
+ * the work.
+ *
+ * Usage: EngineBenchmark [size] [name filter]
+ */
+class EngineBenchmark {
+ private static final long CORPUS_SEED = 0x70_57_E2_5L;
+ private static final int CORPUS_SIZE = 64;
+ private static final double MID_GAME_FILL = 0.5;
+ private static final int WARMUP_ITERATIONS = 5;
+ private static final int MEASURE_ITERATIONS = 10;
+ private static final long ITERATION_NANOS = 200_000_000;
+ private static final int BATCH = 256;  // operations between clock reads
+
+ private static volatile long sink;
+
+ /** One benchmarked operation on corpus position {@code i}; returns something derived from the work. */
+ interface Op {
+     long run(int i);
+ }
+
+ record Benchmark(String name, Op op) {}
+
+ record Result(String name, double opsPerSecond, double errorPercent, double bytesPerOp) {}
+
+ private final List<GameState> corpus;
+ private final int[][] moves;  // a legal (row, col, value) per position, for makeMove
+
+ EngineBenchmark(int size) {
+     corpus = buildCorpus(size);
+     moves = new int[corpus.size()][];
+     for (int i = 0; i < moves.length; i++) moves[i] = firstLegalMove(corpus.get(i));
+ }
+
+ public int getCorpusSize() { return corpus.size(); }
+
+ // === CORPUS ===
+ private static List<GameState> buildCorpus(int size) {
+     Puzzle[] puzzles = new PuzzleGenerator(size).generate(CORPUS_SIZE, CORPUS_SEED);
+     SplittableRandom random = new SplittableRandom(CORPUS_SEED);
+     double[] buffer = MoveEvaluator.newBuffer(size);
+     int target = (int) (size * size * MID_GAME_FILL);
+     List<GameState> positions = new ArrayList<>();
+     for (Puzzle puzzle : puzzles) {
+         GameState game = puzzle.newGame();
+         MoveEvaluator human = new StrategyGreedyHuman(game, random.split());
+         MoveEvaluator cpu = new StrategyScore(game);
+         boolean humanTurn = true;
+         int filled = 0;
+         while (filled < target && !game.isGameOver()) {
+             MoveEvaluator player = humanTurn ? human : cpu;
+             player.evaluateAll(buffer);
+             int[] move = player.selectBest(buffer);
+             if (move == null || !game.makeMove(move[0], move[1], move[2], humanTurn)) break;
+             filled++;
+             humanTurn = !humanTurn;
+         }
+         if (game.isGameOver()) continue;
+         game.setHumanTurn(humanTurn);
+         positions.add(game);
+     }
+     if (positions.isEmpty()) throw new IllegalStateException("No mid-game positions for " + size + "x" + size);
+     return positions;
+ }
+
+ private static int[] firstLegalMove(GameState game) {
+     for (int r = 0; r < game.getSize(); r++) {
+         for (int c = 0; c < game.getSize(); c++) {
+             int v = game.findLegalValue(r, c);
+             if (v != -1) return new int[]{r, c, v};
+         }
+     }
+     throw new IllegalStateException("Corpus position has no legal move");
+ }
+
+ // === BENCHMARKS ===
+ /** Every benchmark, in report order. */
+ List<Benchmark> benchmarks() {
+     List<Benchmark> list = new ArrayList<>();
+     TowersConstraintGraph graph = corpus.get(0).getGraph();
+     int size = graph.getSize();
+
+     list.add(new Benchmark("graph.hasConflict", i -> {
+         GameState g = corpus.get(i);
+         int[][] grid = g.getGrid();
+         long hits = 0;
+         for (int cell = 0; cell < size * size; cell++) {
+             if (graph.hasConflict(grid, cell / size, cell % size, cell % size + 1)) hits++;
+         }
+         return hits;
+     }));
+     list.add(new Benchmark("state.makeMove+undoMove", i -> {
+         GameState g = corpus.get(i);
+         int[] m = moves[i];
+         boolean placed = g.makeMove(m[0], m[1], m[2], g.isHumanTurn());
+         g.undoMove();
+         return placed ? 1 : 0;
+     }));
+     list.add(new Benchmark("state.validateVisibility", i -> {
+         GameState g = corpus.get(i);
+         long valid = 0;
+         for (int k = 0; k < size; k++) {
+             if (g.validateRowVisibility(k)) valid++;
+             if (g.validateColumnVisibility(k)) valid++;
+         }
+         return valid;
+     }));
+     list.add(new Benchmark("state.hasAnyValidMoves", i -> corpus.get(i).hasAnyValidMoves() ? 1 : 0));
+
+     addStrategy(list, "lives", StrategyLives::new);
+     addStrategy(list, "completion", StrategyCompletion::new);
+     addStrategy(list, "score", StrategyScore::new);
+     addStrategy(list, "mrv", StrategyMRV::new);
+
+     PositionBatch batch = new PositionBatch(size, corpus.size());
+     for (GameState g : corpus) batch.add(g);
+     short[] legal = new short[size * size * corpus.size()];
+     byte[] lines = new byte[2 * size * corpus.size()];
+     double[] scores = new double[size * size * corpus.size()];
+     byte[] values = new byte[size * size * corpus.size()];
+     list.add(new Benchmark("batch.legalMasks", i -> {
+         batch.legalMasks(legal);
+         return legal[legal.length - 1];
+     }));
+     list.add(new Benchmark("batch.lineValidity", i -> {
+         batch.lineValidity(lines);
+         return lines[lines.length - 1];
+     }));
+     for (Tournament.Player p : ReplayAnalyzer.STRATEGIES) {
+         list.add(new Benchmark("batch." + p.id + ".evaluateCells", i -> {
+             batch.evaluateCells(p, scores, values);
+             return Double.doubleToRawLongBits(scores[scores.length - 1]) + values[0];
+         }));
+     }
+     return list;
+ }
+
+ private void addStrategy(List<Benchmark> list, String name, Function<GameState, MoveEvaluator> factory) {
+     MoveEvaluator[] evaluators = new MoveEvaluator[corpus.size()];
+     for (int i = 0; i < evaluators.length; i++) evaluators[i] = factory.apply(corpus.get(i));
+     double[] buffer = MoveEvaluator.newBuffer(corpus.get(0).getSize());
+
+     list.add(new Benchmark(name + ".evaluateAll", i -> {
+         evaluators[i].evaluateAll(buffer);
+         return Double.doubleToRawLongBits(buffer[buffer.length - 1]);
+     }));
+     list.add(new Benchmark(name + ".findBestMove", i -> {
+         int[] move = evaluators[i].findBestMove();
+         return move == null ? -1 : move[0] * 31 + move[1] * 7 + move[2];
+     }));
+     list.add(new Benchmark(name + ".evaluateCell", i -> {
+         int[] m = moves[i];
+         return Double.doubleToRawLongBits(evaluators[i].evaluateCell(m[0], m[1]));
+     }));
+ }
+
+ // === HARNESS ===
+ Result measure(String name, Op op) {
+     for (int it = 0; it < WARMUP_ITERATIONS; it++) iteration(op);
+
+     double[] rates = new double[MEASURE_ITERATIONS];
+     long allocatedBefore = allocatedBytes();
+     long totalOps = 0;
+     for (int it = 0; it < MEASURE_ITERATIONS; it++) {
+         long[] opsAndNanos = iteration(op);
+         totalOps += opsAndNanos[0];
+         rates[it] = opsAndNanos[0] * 1e9 / opsAndNanos[1];
+     }
+     long allocated = allocatedBytes() - allocatedBefore;
+
+     double mean = 0;
+     for (double r : rates) mean += r;
+     mean /= rates.length;
+     double variance = 0;
+     for (double r : rates) variance += (r - mean) * (r - mean);
+     double stdDev = Math.sqrt(variance / (rates.length - 1));
+     double bytesPerOp = allocatedBefore < 0 ? Double.NaN : (double) allocated / totalOps;
+     return new Result(name, mean, 100 * stdDev / mean, bytesPerOp);
+ }
+
+ // Run batches over the corpus for one iteration's worth of time; returns {operations, nanos}
+ private long[] iteration(Op op) {
+     int n = corpus.size();
+     long acc = 0, ops = 0;
+     int i = 0;
+     long start = System.nanoTime(), elapsed;
+     do {
+         for (int b = 0; b < BATCH; b++) {
+             acc += op.run(i);
+             if (++i == n) i = 0;
+         }
+         ops += BATCH;
+         elapsed = System.nanoTime() - start;
+     } while (elapsed < ITERATION_NANOS);
+     sink ^= acc;
+     return new long[]{ops, elapsed};
+ }
+
+ /** Bytes allocated so far by this thread, or -1 if the JVM cannot tell. */
+ private static long allocatedBytes() {
+     if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+             && bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+         return bean.getCurrentThreadAllocatedBytes();
+     }
+     return -1;
+ }
+
+ public static void main(String[] args) {
+     int size = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+     String filter = args.length > 1 ? args[1] : "";
+     EngineBenchmark bench = new EngineBenchmark(size);
+
+     System.out.printf(Locale.ROOT, "%dx%d, %d mid-game positions, %d x %d ms warmup, %d x %d ms measured%n",
+         size, size, bench.getCorpusSize(), WARMUP_ITERATIONS, ITERATION_NANOS / 1_000_000,
+         MEASURE_ITERATIONS, ITERATION_NANOS / 1_000_000);
+     System.out.printf(Locale.ROOT, "%-28s %14s %8s %10s%n", "benchmark", "ops/s", "error", "B/op");
+     for (Benchmark b : bench.benchmarks()) {
+         if (!b.name().contains(filter)) continue;
+         Result r = bench.measure(b.name(), b.op());
+         System.out.printf(Locale.ROOT, "%-28s %14.0f %7.1f%% %10.1f%n",
+             r.name(), r.opsPerSecond(), r.errorPercent(), r.bytesPerOp());
+     }
+     if (sink == 42) System.out.println();  // keep the sink observable
+ }
+}
@@ -2,70 +2,68 @@ package game;
 
 import java.util.*;
 
-//============================================================================
-//VERTEX CLASS
-//============================================================================
-class Vertex {
- int row, col, position;
- List<Edge> incidentEdges = new ArrayList<>();
-
- Vertex(int row, int col, int position) {
-     this.row = row;
-     this.col = col;
-     this.position = position;
- }
-
- void addEdge(Edge e) {
-     incidentEdges.add(e);
- }
-}
-
-//============================================================================
-//EDGE CLASS
-//============================================================================
-class Edge {
- Vertex origin, dest;
- Edge(Vertex origin, Vertex dest) {
-     this.origin = origin;
-     this.dest = dest;
- }
-}
-
 //============================================================================
 //TOWERS CONSTRAINT GRAPH
 //============================================================================
+/**
+ * Latin-square constraint graph for an N x N board: every cell is adjacent to
+ * the other cells of its row and column. Adjacency is stored in CSR form
+ * (offsets + flat neighbour array of cell indices r * N + c), and one
+ * immutable instance per N is shared by every game.
+ */
 class TowersConstraintGraph {
- private final int size = 4;  // Fixed 4x4
- private List<Vertex> vertices = new ArrayList<>();
-
- TowersConstraintGraph() {
-     buildGraph();
- }
-
- private void buildGraph() {
+ static final int MIN_SIZE = 1;
+ static final int MAX_SIZE = 9;
+ private static final TowersConstraintGraph[] SHARED = new TowersConstraintGraph[MAX_SIZE + 1];
+
+ private final int size;
+ private final int[] offsets;    // neighbours of cell i are neighbors[offsets[i] .. offsets[i + 1])
+ private final int[] neighbors;
+
+ private TowersConstraintGraph(int size) {
+     this.size = size;
+     int cells = size * size;
+     int degree = 2 * (size - 1);
+     offsets = new int[cells + 1];
+     neighbors = new int[cells * degree];
+
+     int k = 0;
      for (int r = 0; r < size; r++) {
          for (int c = 0; c < size; c++) {
-             vertices.add(new Vertex(r, c, r * size + c));
-         }
-     }
-     for (Vertex v : vertices) {
-         for (Vertex u : vertices) {
-             if (v != u && (v.row == u.row || v.col == u.col)) {
-                 v.addEdge(new Edge(v, u));
+             offsets[r * size + c] = k;
+             for (int cc = 0; cc < size; cc++) {
+                 if (cc != c) neighbors[k++] = r * size + cc;
+             }
+             for (int rr = 0; rr < size; rr++) {
+                 if (rr != r) neighbors[k++] = rr * size + c;
              }
          }
      }
+     offsets[cells] = k;
  }
 
- public Vertex getVertex(int row, int col) {
-     return vertices.get(row * size + col);
+ /** Shared graph for an N x N board, built on first use. */
+ static TowersConstraintGraph forSize(int size) {
+     if (size < MIN_SIZE || size > MAX_SIZE) {
+         throw new IllegalArgumentException("Board size must be " + MIN_SIZE + ".." + MAX_SIZE + ": " + size);
+     }
+     synchronized (SHARED) {
+         if (SHARED[size] == null) SHARED[size] = new TowersConstraintGraph(size);
+         return SHARED[size];
+     }
  }
 
+ public int getSize() { return size; }
+ public int getCellCount() { return size * size; }
+ public int neighborStart(int cell) { return offsets[cell]; }
+ public int neighborEnd(int cell) { return offsets[cell + 1]; }
+ public int neighborAt(int index) { return neighbors[index]; }
+
  public boolean hasConflict(int[][] grid, int row, int col, int value) {
-     Vertex cell = getVertex(row, col);
-     for (Edge e : cell.incidentEdges) {
-         Vertex neighbor = e.dest;
-         if (grid[neighbor.row][neighbor.col] == value) {
+     int cell = row * size + col;
+     for (int i = offsets[cell], end = offsets[cell + 1]; i < end; i++) {
+         int n = neighbors[i];
+         if (grid[n / size][n % size] == value) {
              return true;
          }
      }
@@ -77,27 +75,164 @@ class TowersConstraintGraph {
 //GAME STATE
 //============================================================================
 class GameState {
- private static final int SIZE = 4;  // Fixed 4x4
- private TowersConstraintGraph graph = new TowersConstraintGraph();
- private int[][] grid = new int[SIZE][SIZE];
+ private final int size;
+ private final TowersConstraintGraph graph;
+ private final VisibilityTable visibility;
+ private final int[][] grid;
+
+ // Bitboards: bit (v-1) is set when value v is already placed in that row/column
+ private final int fullMask;
+ private final int[] rowUsed;
+ private final int[] colUsed;
+
+ // Clue-driven domains, narrowed after every placed move and rolled back on undo
+ // (see ConstraintPropagator); minimax orders moves the domains still allow first
+ private final ConstraintPropagator propagator;
 
  private int humanScore = 0, cpuScore = 0;
  private int humanLives = 100, cpuLives = 100;
  private boolean isHumanTurn = true;
 
- private int[] topClues = new int[SIZE];
- private int[] rightClues = new int[SIZE];
- private int[] bottomClues = new int[SIZE];
- private int[] leftClues = new int[SIZE];
+ private final int[] topClues;
+ private final int[] rightClues;
+ private final int[] bottomClues;
+ private final int[] leftClues;
+
+ // Status line: the code of the last recorded move (see statusCode), formatted only
+ // when getStatusMessage() is called, or TEXT_STATUS for a message set by the GUI
+ private static final long TEXT_STATUS = -1L;
+ private long status = TEXT_STATUS;
+ private String statusText = "";
+ private boolean placedWithViolation;  // set by playMove for the status code
+ private MoveExplanation cpuReasoning;
+
+ // Zobrist hash of cells and score/lives buckets, kept up to date by makeMove/undoMove;
+ // the side to move is mixed in by getHash()
+ private final ZobristKeys zobrist;
+ private long hash;
+
+ // Undo stack: one packed MoveRecord per makeMove/deadlock, plus the status (code and text) it replaced
+ private long[] history;
+ private long[] statusHistory;
+ private String[] statusTextHistory;
+ private int[] propagatorMarks;
+ private int historySize = 0;
+ private long revision = 0;  // bumped on every recorded change or undo
+
+ // Per cell, the values its row / column can still take in a completion matching the clues;
+ // rebuilt on demand when the revision has moved on
+ private int[] rowCompletion, colCompletion, lineScratch;
+ private long completionRevision = -1;
+
+ /** Board size is taken from the clue arrays, which must all have the same length. */
+ GameState(int[] top, int[] right, int[] bottom, int[] left) {
+     size = top.length;
+     if (right.length != size || bottom.length != size || left.length != size) {
+         throw new IllegalArgumentException("Clue arrays must all have length " + size);
+     }
+     graph = TowersConstraintGraph.forSize(size);
+     visibility = VisibilityTable.forSize(size);
+     grid = new int[size][size];
+     fullMask = (1 << size) - 1;
+     rowUsed = new int[size];
+     colUsed = new int[size];
+     topClues = top.clone();
+     rightClues = right.clone();
+     bottomClues = bottom.clone();
+     leftClues = left.clone();
+     propagator = new ConstraintPropagator(topClues, rightClues, bottomClues, leftClues);
+     zobrist = ZobristKeys.forSize(size);
+     hash = statsKey(true) ^ statsKey(false);
+     history = new long[size * size * 2];
+     statusHistory = new long[history.length];
+     statusTextHistory = new String[history.length];
+     propagatorMarks = new int[history.length];
+ }
 
- private String statusMessage = "";
- private String cpuReasoningExplanation = "";
+ /** Independent copy of the current position for lookahead; the undo history starts empty. */
+ private GameState(GameState other) {
+     size = other.size;
+     graph = other.graph;
+     visibility = other.visibility;
+     grid = new int[size][];
+     for (int r = 0; r < size; r++) grid[r] = other.grid[r].clone();
+     fullMask = other.fullMask;
+     rowUsed = other.rowUsed.clone();
+     colUsed = other.colUsed.clone();
+     topClues = other.topClues;
+     rightClues = other.rightClues;
+     bottomClues = other.bottomClues;
+     leftClues = other.leftClues;
+     humanScore = other.humanScore;
+     cpuScore = other.cpuScore;
+     humanLives = other.humanLives;
+     cpuLives = other.cpuLives;
+     isHumanTurn = other.isHumanTurn;
+     status = other.status;
+     statusText = other.statusText;
+     propagator = other.propagator.copy();
+     zobrist = other.zobrist;
+     hash = other.hash;
+     history = new long[size * size * 2];
+     statusHistory = new long[history.length];
+     statusTextHistory = new String[history.length];
+     propagatorMarks = new int[history.length];
+ }
 
- GameState(int[] top, int[] right, int[] bottom, int[] left) {
-     System.arraycopy(top, 0, this.topClues, 0, SIZE);
-     System.arraycopy(right, 0, this.rightClues, 0, SIZE);
-     System.arraycopy(bottom, 0, this.bottomClues, 0, SIZE);
-     System.arraycopy(left, 0, this.leftClues, 0, SIZE);
+ GameState copy() {
+     return new GameState(this);
+ }
+
+ /**
+  * Overwrite this position with other's, reusing this state's arrays; other
+  * must be this copy's source or another copy of it (same clue arrays). The
+  * undo history starts empty, as after copy().
+  */
+ void resetTo(GameState other) {
+     if (other.topClues != topClues || other.leftClues != leftClues) {
+         throw new IllegalArgumentException("Not a copy of the same game");
+     }
+     for (int r = 0; r < size; r++) System.arraycopy(other.grid[r], 0, grid[r], 0, size);
+     System.arraycopy(other.rowUsed, 0, rowUsed, 0, size);
+     System.arraycopy(other.colUsed, 0, colUsed, 0, size);
+     humanScore = other.humanScore;
+     cpuScore = other.cpuScore;
+     humanLives = other.humanLives;
+     cpuLives = other.cpuLives;
+     isHumanTurn = other.isHumanTurn;
+     status = other.status;
+     statusText = other.statusText;
+     hash = other.hash;
+     propagator.resetTo(other.propagator);
+     Arrays.fill(statusTextHistory, 0, historySize, null);
+     historySize = 0;
+     revision++;  // cached completion masks are stale
+ }
+
+ /**
+  * A game set up at a given position (0 = empty cell) with no history, e.g.
+  * decoded from a PackedPosition. The grid must be a partial Latin square.
+  */
+ static GameState atPosition(int[] top, int[] right, int[] bottom, int[] left, int[][] cells,
+                             int humanScore, int cpuScore, int humanLives, int cpuLives, boolean humanTurn) {
+     GameState state = new GameState(top, right, bottom, left);
+     for (int r = 0; r < state.size; r++) {
+         for (int c = 0; c < state.size; c++) {
+             int v = cells[r][c];
+             if (v == 0) continue;
+             if (!state.isLegal(r, c, v)) throw new IllegalArgumentException("Not a partial Latin square at (" + r + "," + c + ")");
+             state.placeCell(r, c, v);
+             state.hash ^= state.zobrist.cell(r * state.size + c, v);
+         }
+     }
+     state.hash ^= state.statsKey(true) ^ state.statsKey(false);
+     state.humanScore = humanScore;
+     state.cpuScore = cpuScore;
+     state.humanLives = humanLives;
+     state.cpuLives = cpuLives;
+     state.hash ^= state.statsKey(true) ^ state.statsKey(false);
+     state.isHumanTurn = humanTurn;
+     return state;
  }
 
  // === MOVE EXECUTION & PENALTIES ===
@@ -142,21 +277,36 @@ class GameState {
  
  
  
+ /**
+  * Apply a move and push its record onto the undo stack (see {@link #undoMove()}).
+  * Rejected moves are recorded too, so every call can be undone.
+  */
  public boolean makeMove(int row, int col, int value, boolean isHuman) {
+     int scoreBefore = isHuman ? humanScore : cpuScore;
+     int livesBefore = isHuman ? humanLives : cpuLives;
+     long statsBefore = statsKey(isHuman);
+     int mark = propagator.mark();
+     int outcome = playMove(row, col, value, isHuman);
+     hash ^= statsBefore ^ statsKey(isHuman);
+     if (outcome == MoveRecord.PLACED) hash ^= zobrist.cell(row * size + col, value);
+     pushRecord(row * size + col, value, isHuman, outcome, scoreBefore, livesBefore, mark);
+     return outcome == MoveRecord.PLACED;
+ }
+
+ private int playMove(int row, int col, int value, boolean isHuman) {
 	    // 1. Check if cell is occupied
 	    if (grid[row][col] != 0) {
-	        statusMessage = "❌ Cell already filled!";
-	        return false;
+	        return MoveRecord.REJECTED_FILLED;
 	    }
 
 	    // 2. Check for constraint violations (duplicates in row/column)
-	    if (graph.hasConflict(grid, row, col, value)) {
-	        applyPenalty(isHuman, 10, "Constraint violation");
-	        return false;  // Move REJECTED - number NOT placed
+	    if (!isLegal(row, col, value)) {
+	        applyPenalty(isHuman, 10);
+	        return MoveRecord.REJECTED_CONFLICT;  // Move REJECTED - number NOT placed
 	    }
 
 	    // 3. Place the move (passed constraint checks)
-	    grid[row][col] = value;
+	    placeCell(row, col, value);
 	    int scoreGain = 0;
 	    boolean hadViolation = false;
 
@@ -166,7 +316,7 @@ class GameState {
 	        if (validateRowVisibility(row)) {
 	            scoreGain += 15;  // Valid row completion bonus
 	        } else {
-	            applyPenalty(isHuman, 15, "Row visibility violation");
+	            applyPenalty(isHuman, 15);
 	            hadViolation = true;
 	        }
 	    }
@@ -177,7 +327,7 @@ class GameState {
 	        if (validateColumnVisibility(col)) {
 	            scoreGain += 15;  // Valid column completion bonus
 	        } else {
-	            applyPenalty(isHuman, 15, "Column visibility violation");
+	            applyPenalty(isHuman, 15);
 	            hadViolation = true;
 	        }
 	    }
@@ -191,15 +341,116 @@ class GameState {
 	    if (isHuman) humanScore += scoreGain;
 	    else cpuScore += scoreGain;
 
-	    // 8. Set status message
-	    if (hadViolation) {
-	        statusMessage = isHuman ? "⚠️ Move placed but violated clues! -15 lives" : "⚠️ CPU violated clues! -15 lives";
-	    } else {
-	        statusMessage = isHuman ? "✓ Valid move! +" + scoreGain + " points" : "✓ CPU scored +" + scoreGain + " points";
-	    }
+	    // 8. Status message (formatted later from the record, see formatStatus)
+	    placedWithViolation = hadViolation;
 
-	    return true;
+	    return MoveRecord.PLACED;
 	}
+
+ /**
+  * Revert the most recent makeMove or deadlock penalty: cell, masks, score,
+  * lives and status message are restored. Returns false if there is nothing to undo.
+  */
+ public boolean undoMove() {
+     if (historySize == 0) return false;
+     revision++;
+     long rec = history[--historySize];
+     status = statusHistory[historySize];
+     statusText = statusTextHistory[historySize];
+     statusTextHistory[historySize] = null;
+
+     long statsBefore = statsKey(MoveRecord.isHuman(rec));
+     if (MoveRecord.isHuman(rec)) {
+         humanScore -= MoveRecord.scoreDelta(rec);
+         humanLives -= MoveRecord.livesDelta(rec);
+     } else {
+         cpuScore -= MoveRecord.scoreDelta(rec);
+         cpuLives -= MoveRecord.livesDelta(rec);
+     }
+     hash ^= statsBefore ^ statsKey(MoveRecord.isHuman(rec));
+
+     if (MoveRecord.outcome(rec) == MoveRecord.PLACED) {
+         int cell = MoveRecord.cell(rec);
+         hash ^= zobrist.cell(cell, MoveRecord.value(rec));
+         int r = cell / size, c = cell % size;
+         int bit = 1 << (MoveRecord.value(rec) - 1);
+         grid[r][c] = 0;
+         rowUsed[r] &= ~bit;
+         colUsed[c] &= ~bit;
+         propagator.undoTo(propagatorMarks[historySize]);
+     }
+     return true;
+ }
+
+ private void placeCell(int row, int col, int value) {
+     grid[row][col] = value;
+     rowUsed[row] |= 1 << (value - 1);
+     colUsed[col] |= 1 << (value - 1);
+     propagator.assign(row * size + col, value);
+ }
+
+ private void pushRecord(int cell, int value, boolean isHuman, int outcome,
+                         int scoreBefore, int livesBefore, int propagatorMark) {
+     if (historySize == history.length) {
+         history = Arrays.copyOf(history, historySize * 2);
+         statusHistory = Arrays.copyOf(statusHistory, historySize * 2);
+         statusTextHistory = Arrays.copyOf(statusTextHistory, historySize * 2);
+         propagatorMarks = Arrays.copyOf(propagatorMarks, historySize * 2);
+     }
+     int lives = isHuman ? humanLives : cpuLives;
+     int scoreDelta = (isHuman ? humanScore : cpuScore) - scoreBefore;
+     long rec = MoveRecord.pack(cell, value, isHuman, outcome, scoreDelta, lives - livesBefore);
+     history[historySize] = rec;
+     statusHistory[historySize] = status;
+     statusTextHistory[historySize] = statusText;
+     propagatorMarks[historySize] = propagatorMark;
+     status = statusCode(rec, lives, outcome == MoveRecord.PLACED && placedWithViolation);
+     historySize++;
+     revision++;
+ }
+
+ // === STATUS ===
+ // A status code is the move's record plus, in the top 16 bits, the mover's
+ // lives after it (bits 48-55) and whether a placement broke a clue (bit 56)
+ private static long statusCode(long rec, int livesAfter, boolean violation) {
+     return rec | (long) (livesAfter & 0xFF) << 48 | (violation ? 1L << 56 : 0L);
+ }
+
+ private static String formatStatus(long code) {
+     boolean isHuman = MoveRecord.isHuman(code);
+     int lives = (int) (code >>> 48) & 0xFF;
+     switch (MoveRecord.outcome(code)) {
+         case MoveRecord.REJECTED_FILLED:
+             return "❌ Cell already filled!";
+         case MoveRecord.REJECTED_CONFLICT:
+             return penaltyMessage(isHuman, "Constraint violation", 10, lives);
+         case MoveRecord.DEADLOCK:
+             return penaltyMessage(isHuman, "Deadlock - no legal moves", 5, lives);
+         default:
+             if ((code & (1L << 56)) != 0) {
+                 return isHuman ? "⚠️ Move placed but violated clues! -15 lives" : "⚠️ CPU violated clues! -15 lives";
+             }
+             int gain = MoveRecord.scoreDelta(code);
+             return isHuman ? "✓ Valid move! +" + gain + " points" : "✓ CPU scored +" + gain + " points";
+     }
+ }
+
+ private static String penaltyMessage(boolean isHuman, String reason, int amount, int lives) {
+     return isHuman ? "❌ " + reason + " (-" + amount + " lives) → Lives: " + lives
+                    : "❌ CPU " + reason.toLowerCase() + " (-" + amount + " lives) → Lives: " + lives;
+ }
+
+ public int getHistorySize() { return historySize; }
+ /** Changes whenever the position, scores or lives change; lets callers reuse cached evaluations. */
+ public long getRevision() { return revision; }
+ public long getHistoryRecord(int index) { return history[index]; }
+
+ /** Zobrist hash of the position: placed values, side to move and score/lives buckets. */
+ public long getHash() { return isHumanTurn ? hash ^ zobrist.humanToMove() : hash; }
+
+ private long statsKey(boolean isHuman) {
+     return isHuman ? zobrist.stats(true, humanScore, humanLives) : zobrist.stats(false, cpuScore, cpuLives);
+ }
  
  /**
   * Check if the current player has any legal moves available.
@@ -208,7 +459,12 @@ class GameState {
   */
  public boolean checkForDeadlock(boolean isHuman) {
      if (!hasAnyValidMoves()) {
-         applyPenalty(isHuman, 5, "Deadlock - no legal moves");
+         int livesBefore = isHuman ? humanLives : cpuLives;
+         long statsBefore = statsKey(isHuman);
+         applyPenalty(isHuman, 5);
+         hash ^= statsBefore ^ statsKey(isHuman);
+         pushRecord(MoveRecord.NO_CELL, 0, isHuman, MoveRecord.DEADLOCK,
+                    isHuman ? humanScore : cpuScore, livesBefore, propagator.mark());
          return true;  // Deadlock detected - skip turn
      }
      return false;  // Has legal moves - continue normally
@@ -223,51 +479,115 @@ class GameState {
 //         statusMessage = "❌ CPU " + reason.toLowerCase() + " (-" + amount + " lives)";
 //     }
 // }
- private void applyPenalty(boolean isHuman, int amount, String reason) {
+ // The status message for the penalty is formatted from the move's record (see formatStatus)
+ private void applyPenalty(boolean isHuman, int amount) {
 	    if (isHuman) {
 	        humanLives = Math.max(0, humanLives - amount);
-	        statusMessage = "❌ " + reason + " (-" + amount + " lives) → Lives: " + humanLives;
 	    } else {
 	        cpuLives = Math.max(0, cpuLives - amount);
-	        statusMessage = "❌ CPU " + reason.toLowerCase() + " (-" + amount + " lives) → Lives: " + cpuLives;
 	    }
 	}
  // === VISIBILITY & HELPERS ===
+ // Complete lines are ranked into the shared VisibilityTable; anything that is
+ // not a permutation of 1..N falls back to counting towers directly.
  public boolean validateRowVisibility(int row) {
-     int leftCount = countVisible(grid[row], true);
-     int rightCount = countVisible(grid[row], false);
-     return leftCount == leftClues[row] && rightCount == rightClues[row];
+     long line = VisibilityTable.packRow(grid, row);
+     if (visibility.rank(line) >= 0) return visibility.isValid(line, leftClues[row], rightClues[row]);
+     return countVisible(line, true) == leftClues[row] && countVisible(line, false) == rightClues[row];
  }
 
  public boolean validateColumnVisibility(int col) {
-     int[] colVals = new int[SIZE];
-     for (int r = 0; r < SIZE; r++) colVals[r] = grid[r][col];
-     int topCount = countVisible(colVals, true);
-     int bottomCount = countVisible(colVals, false);
-     return topCount == topClues[col] && bottomCount == bottomClues[col];
+     long line = VisibilityTable.packColumn(grid, col);
+     if (visibility.rank(line) >= 0) return visibility.isValid(line, topClues[col], bottomClues[col]);
+     return countVisible(line, true) == topClues[col] && countVisible(line, false) == bottomClues[col];
+ }
+
+ /**
+  * With value placed at the empty (row, col), could the row still be completed
+  * to match its clues? For lookahead strategies; the greedy ones deliberately
+  * only check the line a move completes (wouldViolateRow/Column). The first
+  * query after a change scans every line once.
+  */
+ public boolean canStillSatisfyRow(int row, int col, int value) {
+     refreshCompletion();
+     return (rowCompletion[row * size + col] & (1 << (value - 1))) != 0;
  }
 
- private int countVisible(int[] buildings, boolean forward) {
+ public boolean canStillSatisfyColumn(int row, int col, int value) {
+     refreshCompletion();
+     return (colCompletion[row * size + col] & (1 << (value - 1))) != 0;
+ }
+
+ // One table scan per line per position, so strategies can ask for every candidate
+ private void refreshCompletion() {
+     if (completionRevision == revision) return;
+     if (rowCompletion == null) {
+         rowCompletion = new int[size * size];
+         colCompletion = new int[size * size];
+         lineScratch = new int[size];
+     }
+     for (int k = 0; k < size; k++) {
+         visibility.completionMasks(VisibilityTable.packRow(grid, k), leftClues[k], rightClues[k], lineScratch);
+         for (int i = 0; i < size; i++) rowCompletion[k * size + i] = lineScratch[i];
+         visibility.completionMasks(VisibilityTable.packColumn(grid, k), topClues[k], bottomClues[k], lineScratch);
+         for (int i = 0; i < size; i++) colCompletion[i * size + k] = lineScratch[i];
+     }
+     completionRevision = revision;
+ }
+
+ /** Would placing value at the empty (row, col) complete the row with the wrong visibility? */
+ public boolean wouldViolateRow(int row, int col, int value) {
+     if (countEmptyInRow(row) != 1) return false;
+     long line = VisibilityTable.packRow(grid, row) | (long) value << (4 * col);
+     return !visibility.isValid(line, leftClues[row], rightClues[row]);
+ }
+
+ public boolean wouldViolateColumn(int row, int col, int value) {
+     if (countEmptyInColumn(col) != 1) return false;
+     long line = VisibilityTable.packColumn(grid, col) | (long) value << (4 * row);
+     return !visibility.isValid(line, topClues[col], bottomClues[col]);
+ }
+
+ /**
+  * Values the clues still allow at (row, col) given every placed tower, after
+  * edge rules, clue filtering of each line and the different-value arcs.
+  * Unlike legalMask this may exclude values that are Latin-legal but can no
+  * longer lead to a solution.
+  */
+ public int domainMask(int row, int col) {
+     return propagator.getDomain(row, col);
+ }
+
+ /**
+  * False once propagation empties some cell's domain, which proves the placed
+  * towers rule out every solution of the clues. True does not prove a
+  * solution exists: arc consistency can miss a dead end that only search
+  * would find.
+  */
+ public boolean isArcConsistent() {
+     return propagator.isConsistent();
+ }
+
+ private int countVisible(long line, boolean forward) {
      int visible = 0, maxH = 0;
-     int start = forward ? 0 : buildings.length - 1;
-     int end = forward ? buildings.length : -1;
-     int step = forward ? 1 : -1;
-     for (int i = start; i != end; i += step) {
-         if (buildings[i] > maxH) {
+     for (int k = 0; k < size; k++) {
+         int i = forward ? k : size - 1 - k;
+         int h = (int) (line >>> (4 * i)) & 0xF;
+         if (h > maxH) {
              visible++;
-             maxH = buildings[i];
+             maxH = h;
          }
      }
      return visible;
  }
 
  public boolean isRowComplete(int row) {
-     for (int c = 0; c < SIZE; c++) if (grid[row][c] == 0) return false;
+     for (int c = 0; c < size; c++) if (grid[row][c] == 0) return false;
      return true;
  }
 
  public boolean isColumnComplete(int col) {
-     for (int r = 0; r < SIZE; r++) if (grid[r][col] == 0) return false;
+     for (int r = 0; r < size; r++) if (grid[r][col] == 0) return false;
      return true;
  }
 
@@ -278,29 +598,50 @@ class GameState {
 
  public int countEmptyInRow(int row) {
      int cnt = 0;
-     for (int c = 0; c < SIZE; c++) if (grid[row][c] == 0) cnt++;
+     for (int c = 0; c < size; c++) if (grid[row][c] == 0) cnt++;
      return cnt;
  }
 
  public int countEmptyInColumn(int col) {
      int cnt = 0;
-     for (int r = 0; r < SIZE; r++) if (grid[r][col] == 0) cnt++;
+     for (int r = 0; r < size; r++) if (grid[r][col] == 0) cnt++;
      return cnt;
  }
 
  public boolean hasAnyValidMoves() {
-     for (int r = 0; r < SIZE; r++) {
-         for (int c = 0; c < SIZE; c++) {
-             if (grid[r][c] == 0) {
-                 for (int v = 1; v <= SIZE; v++) {
-                     if (!graph.hasConflict(grid, r, c, v)) return true;
-                 }
-             }
+     for (int r = 0; r < size; r++) {
+         if (rowUsed[r] == fullMask) continue;
+         for (int c = 0; c < size; c++) {
+             if (legalMask(r, c) != 0) return true;
          }
      }
      return false;
  }
 
+ // === BITBOARD LEGALITY ===
+ /**
+  * Mask of values that can still be placed at (row, col): bit (v-1) set means v is legal.
+  * Filled cells have no legal values.
+  */
+ public int legalMask(int row, int col) {
+     if (grid[row][col] != 0) return 0;
+     return ~(rowUsed[row] | colUsed[col]) & fullMask;
+ }
+
+ public boolean isLegal(int row, int col, int value) {
+     return (legalMask(row, col) & (1 << (value - 1))) != 0;
+ }
+
+ public int countLegalValues(int row, int col) {
+     return Integer.bitCount(legalMask(row, col));
+ }
+
+ /** Smallest legal value for the cell, or -1 if none. */
+ public int findLegalValue(int row, int col) {
+     int mask = legalMask(row, col);
+     return mask == 0 ? -1 : Integer.numberOfTrailingZeros(mask) + 1;
+ }
+
 // public String getWinner() {
 //     if (humanLives <= 0 && cpuLives <= 0) return "DRAW - Double KO";
 //     if (humanLives <= 0) return "CPU WINS";
@@ -385,8 +726,10 @@ class GameState {
 
  // === GETTERS ===
  public int[][] getGrid() { return grid; }
- public int getSize() { return SIZE; }
+ public int getSize() { return size; }
  public TowersConstraintGraph getGraph() { return graph; }
+ public VisibilityTable getVisibilityTable() { return visibility; }
+ public ConstraintPropagator getPropagator() { return propagator; }
  public int getHumanScore() { return humanScore; }
  public int getCpuScore() { return cpuScore; }
  public int getHumanLives() { return humanLives; }
@@ -397,20 +740,81 @@ class GameState {
  public int[] getLeftClues() { return leftClues; }
  public boolean isHumanTurn() { return isHumanTurn; }
  public void setHumanTurn(boolean t) { isHumanTurn = t; }
- public String getStatusMessage() { return statusMessage; }
- public void setStatusMessage(String m) { statusMessage = m; }
- public String getCpuReasoningExplanation() { return cpuReasoningExplanation; }
- public void setCpuReasoningExplanation(String e) { cpuReasoningExplanation = e; }
+ /** The status line, formatted here from the last move's code unless the GUI set a message since. */
+ public String getStatusMessage() { return status == TEXT_STATUS ? statusText : formatStatus(status); }
+ public void setStatusMessage(String m) {
+     status = TEXT_STATUS;
+     statusText = m;
+ }
+ public String getCpuReasoningExplanation() { return cpuReasoning == null ? "" : cpuReasoning.getText(); }
+ public MoveExplanation getCpuReasoning() { return cpuReasoning; }
+ public void setCpuReasoning(MoveExplanation e) { cpuReasoning = e; }
+}
+
+//============================================================================
+//MOVE EXPLANATION (shared by strategies)
+//============================================================================
+/** Turns the primitive facts of a chosen move into reasoning-panel text. */
+interface MoveExplainer {
+ String describe(MoveExplanation e);
+}
+
+/**
+ * The facts behind one chosen CPU move. Strategies score candidates with
+ * primitives only and build one of these for the winner; the text is
+ * formatted the first time someone asks for it (the GUI reasoning panel).
+ */
+class MoveExplanation {
+ final MoveExplainer explainer;
+ final int row, col, value;
+ final double score;
+ final double[] terms;  // strategy-specific inputs, laid out by each explainer
+ private String text;
+
+ MoveExplanation(MoveExplainer explainer, int row, int col, int value, double score, double... terms) {
+     this.explainer = explainer;
+     this.row = row; this.col = col; this.value = value;
+     this.score = score;
+     this.terms = terms;
+ }
+
+ String getText() {
+     if (text == null) text = explainer.describe(this);
+     return text;
+ }
 }
 
 //============================================================================
-//CELL EVALUATION (shared by strategies)
+//MOVE RECORD (packed undo-stack entry)
 //============================================================================
-class CellEvaluation {
- int row, col;
- double score;
- String explanation;
- CellEvaluation(int row, int col, double score, String explanation) {
-     this.row = row; this.col = col; this.score = score; this.explanation = explanation;
- }
-}
\ No newline at end of file
+/**
+ * Packs one GameState history entry into a long:
+ * bits 0-7 cell index (NO_CELL for a deadlock penalty), bits 8-11 value,
+ * bit 12 human flag, bits 13-15 outcome, bits 16-31 score delta, bits 32-47 lives delta.
+ */
+class MoveRecord {
+ static final int NO_CELL = 0xFF;
+
+ static final int PLACED = 0;
+ static final int REJECTED_FILLED = 1;
+ static final int REJECTED_CONFLICT = 2;
+ static final int DEADLOCK = 3;
+
+ private MoveRecord() {}
+
+ static long pack(int cell, int value, boolean isHuman, int outcome, int scoreDelta, int livesDelta) {
+     return (cell & 0xFFL)
+          | (long) (value & 0xF) << 8
+          | (isHuman ? 1L << 12 : 0L)
+          | (long) (outcome & 0x7) << 13
+          | (scoreDelta & 0xFFFFL) << 16
+          | (livesDelta & 0xFFFFL) << 32;
+ }
+
+ static int cell(long rec) { return (int) (rec & 0xFF); }
+ static int value(long rec) { return (int) (rec >>> 8) & 0xF; }
+ static boolean isHuman(long rec) { return (rec & (1L << 12)) != 0; }
+ static int outcome(long rec) { return (int) (rec >>> 13) & 0x7; }
+ static int scoreDelta(long rec) { return (short) (rec >>> 16); }
+ static int livesDelta(long rec) { return (short) (rec >>> 32); }
+}
@@ -0,0 +1,101 @@
+package game;
+
+//============================================================================
+//GAME RECORD (one finished or abandoned game, as clues plus move records)
+//============================================================================
+/**
+ * Everything needed to reproduce a game: its clues and the GameState history,
+ * one MoveRecord per entry (placements, rejected moves and deadlock
+ * penalties alike). Scores and lives are not stored separately; they are the
+ * sums of the per-move deltas.
+ *
+ * On disk a move takes 4 bytes, see GameRecordFile: cell, value/player/outcome
+ * flags, score delta and lives delta.
+ */
+final class GameRecord {
+ static final int START_LIVES = 100;
+
+ private final int size;
+ private final int[] top, right, bottom, left;
+ private final long[] moves;
+
+ GameRecord(int[] top, int[] right, int[] bottom, int[] left, long[] moves) {
+     size = top.length;
+     if (right.length != size || bottom.length != size || left.length != size) {
+         throw new IllegalArgumentException("Clue arrays must all have length " + size);
+     }
+     this.top = top;
+     this.right = right;
+     this.bottom = bottom;
+     this.left = left;
+     this.moves = moves;
+ }
+
+ /** Snapshot of a game's clues and full history. */
+ static GameRecord of(GameState state) {
+     long[] moves = new long[state.getHistorySize()];
+     for (int i = 0; i < moves.length; i++) moves[i] = state.getHistoryRecord(i);
+     return new GameRecord(state.getTopClues().clone(), state.getRightClues().clone(),
+                           state.getBottomClues().clone(), state.getLeftClues().clone(), moves);
+ }
+
+ public int getSize() { return size; }
+ public int[] getTopClues() { return top; }
+ public int[] getRightClues() { return right; }
+ public int[] getBottomClues() { return bottom; }
+ public int[] getLeftClues() { return left; }
+ public int getMoveCount() { return moves.length; }
+ /** The i-th history entry, packed as a MoveRecord. */
+ public long getMove(int i) { return moves[i]; }
+
+ // === TOTALS (from the deltas, no replay needed) ===
+ public int getScore(boolean isHuman) {
+     int score = 0;
+     for (long m : moves) if (MoveRecord.isHuman(m) == isHuman) score += MoveRecord.scoreDelta(m);
+     return score;
+ }
+
+ public int getLives(boolean isHuman) {
+     int lives = START_LIVES;
+     for (long m : moves) if (MoveRecord.isHuman(m) == isHuman) lives += MoveRecord.livesDelta(m);
+     return lives;
+ }
+
+ // === REPLAY ===
+ /** A fresh game on the recorded clues. */
+ public GameState newGame() {
+     return new GameState(top, right, bottom, left);
+ }
+
+ /** The game after all recorded moves, see {@link #replay(int)}. */
+ public GameState replay() {
+     return replay(moves.length);
+ }
+
+ /**
+  * Play the first {@code count} recorded moves on a fresh game. Each step
+  * must reproduce its record exactly; a record that does not (edited or
+  * written by a different rule set) throws IllegalStateException.
+  */
+ public GameState replay(int count) {
+     GameState state = newGame();
+     for (int i = 0; i < count; i++) step(state, i);
+     return state;
+ }
+
+ /** Play recorded move i on a game that has had exactly moves 0..i-1 played, as replay does. */
+ public void step(GameState state, int i) {
+     long m = moves[i];
+     boolean isHuman = MoveRecord.isHuman(m);
+     state.setHumanTurn(isHuman);
+     if (MoveRecord.outcome(m) == MoveRecord.DEADLOCK) {
+         state.checkForDeadlock(isHuman);
+     } else {
+         int cell = MoveRecord.cell(m);
+         state.makeMove(cell / size, cell % size, MoveRecord.value(m), isHuman);
+     }
+     if (state.getHistorySize() != i + 1 || state.getHistoryRecord(i) != m) {
+         throw new IllegalStateException("Game record does not replay at move " + i);
+     }
+ }
+}
@@ -0,0 +1,302 @@
+package game;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+//============================================================================
+//GAME RECORD FILE (append-only, framed and checksummed game records)
+//============================================================================
+/**
+ * Append-only file of GameRecords, written through a buffered channel and
+ * read back as a stream, one game at a time, so files of millions of games
+ * never have to fit in memory.
+ *
+ * Header (little-endian, HEADER_BYTES long):
+ *   int magic, short version, then zero padding.
+ *
+ * Frame, one per game:
+ *   int payload length, int CRC32 of the payload, then the payload:
+ *   byte size, clues 2 per byte, each side (top, right, bottom, left)
+ *   starting on a fresh byte,
+ *   int move count, then 4 bytes per move:
+ *   byte cell (0xFF for a deadlock), byte value | human << 4 | outcome << 5,
+ *   byte score delta, byte lives delta.
+ *
+ * A crash can leave the last frame half-written. The reader treats such a
+ * torn tail as the end of the file, and opening a writer cuts it off before
+ * appending. A complete frame whose checksum does not match is corruption
+ * and raises an IOException.
+ */
+final class GameRecordFile {
+ static final int MAGIC = 0x52475754;  // "TWGR"
+ static final short VERSION = 1;
+ static final int HEADER_BYTES = 16;
+ static final int FRAME_HEADER_BYTES = 8;
+ static final int MOVE_BYTES = 4;
+ static final int MAX_PAYLOAD_BYTES = 1 << 20;  // far beyond any real game; guards against garbage lengths
+ private static final int BUFFER_BYTES = 1 << 16;
+
+ private GameRecordFile() {}
+
+ // === ENCODING ===
+ static int payloadBytes(GameRecord game) {
+     return 1 + 4 * ((game.getSize() + 1) / 2) + 4 + MOVE_BYTES * game.getMoveCount();
+ }
+
+ private static void putPayload(ByteBuffer buf, GameRecord game) {
+     int size = game.getSize();
+     buf.put((byte) size);
+     int[][] clues = {game.getTopClues(), game.getRightClues(), game.getBottomClues(), game.getLeftClues()};
+     for (int side = 0; side < 4; side++) {
+         for (int i = 0; i < size; i += 2) {
+             int low = clues[side][i], high = i + 1 < size ? clues[side][i + 1] : 0;
+             buf.put((byte) (low | high << 4));
+         }
+     }
+     buf.putInt(game.getMoveCount());
+     for (int i = 0; i < game.getMoveCount(); i++) {
+         long m = game.getMove(i);
+         int score = MoveRecord.scoreDelta(m), lives = MoveRecord.livesDelta(m);
+         if (score != (byte) score || lives != (byte) lives) {
+             throw new IllegalArgumentException("Move " + i + " has deltas out of byte range");
+         }
+         buf.put((byte) MoveRecord.cell(m));
+         buf.put((byte) (MoveRecord.value(m) | (MoveRecord.isHuman(m) ? 1 << 4 : 0) | MoveRecord.outcome(m) << 5));
+         buf.put((byte) score);
+         buf.put((byte) lives);
+     }
+ }
+
+ private static GameRecord getPayload(ByteBuffer buf) throws IOException {
+     int size = buf.get();
+     if (size < TowersConstraintGraph.MIN_SIZE || size > TowersConstraintGraph.MAX_SIZE) {
+         throw new IOException("Bad board size in game record: " + size);
+     }
+     int[][] clues = new int[4][size];
+     for (int side = 0; side < 4; side++) {
+         for (int i = 0; i < size; i += 2) {
+             int b = buf.get();
+             clues[side][i] = b & 0xF;
+             if (i + 1 < size) clues[side][i + 1] = (b >> 4) & 0xF;
+         }
+     }
+     int count = buf.getInt();
+     if (count < 0 || count * MOVE_BYTES != buf.remaining()) throw new IOException("Bad move count in game record: " + count);
+     long[] moves = new long[count];
+     for (int i = 0; i < count; i++) {
+         int cell = buf.get() & 0xFF;
+         int flags = buf.get() & 0xFF;
+         int score = buf.get(), lives = buf.get();
+         moves[i] = MoveRecord.pack(cell, flags & 0xF, (flags & 0x10) != 0, flags >>> 5, score, lives);
+     }
+     return new GameRecord(clues[0], clues[1], clues[2], clues[3], moves);
+ }
+
+ /** One game's payload as a standalone byte array (no frame), e.g. for compact in-memory storage. */
+ static byte[] encode(GameRecord game) {
+     byte[] bytes = new byte[payloadBytes(game)];
+     putPayload(ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN), game);
+     return bytes;
+ }
+
+ /** Decode a payload from the buffer's position to its limit, as written by encode. */
+ static GameRecord decode(ByteBuffer buf) throws IOException {
+     return getPayload(buf.slice().order(ByteOrder.LITTLE_ENDIAN));
+ }
+
+ static int checksum(ByteBuffer buf, int offset, int length) {
+     CRC32 crc = new CRC32();
+     crc.update(buf.duplicate().limit(offset + length).position(offset));
+     return (int) crc.getValue();
+ }
+
+ private static void writeFully(FileChannel out, ByteBuffer buf) throws IOException {
+     while (buf.hasRemaining()) out.write(buf);
+ }
+
+ //============================================================================
+ //WRITER
+ //============================================================================
+ /**
+  * Appends games to a record file, creating it if needed. Frames are built in
+  * a direct buffer and reach the channel when it fills, on flush() or on
+  * close(). Safe to share between threads.
+  */
+ static final class Writer implements AutoCloseable, Flushable {
+     private final FileChannel channel;
+     private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+     private long gamesWritten;
+
+     private Writer(FileChannel channel) {
+         this.channel = channel;
+     }
+
+     static Writer open(Path file) throws IOException {
+         FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                                StandardOpenOption.WRITE);
+         try {
+             if (channel.size() == 0) {
+                 ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                 header.putInt(MAGIC).putShort(VERSION).clear();
+                 writeFully(channel, header);
+             } else {
+                 // Cut off a torn last frame so new frames follow the last complete one
+                 long end;
+                 try (Reader reader = new Reader(channel, false)) {
+                     while (reader.next() != null) { }
+                     end = reader.getValidEnd();
+                 }
+                 channel.truncate(end);
+             }
+             channel.position(channel.size());
+             return new Writer(channel);
+         } catch (IOException | RuntimeException e) {
+             channel.close();
+             throw e;
+         }
+     }
+
+     public synchronized long getGamesWritten() { return gamesWritten; }
+
+     public synchronized void write(GameRecord game) throws IOException {
+         int payload = payloadBytes(game);
+         int frame = FRAME_HEADER_BYTES + payload;
+         if (buffer.remaining() < frame) flushBuffer();
+         ByteBuffer out = frame <= buffer.capacity() ? buffer : ByteBuffer.allocate(frame).order(ByteOrder.LITTLE_ENDIAN);
+
+         int start = out.position();
+         out.position(start + FRAME_HEADER_BYTES);
+         try {
+             putPayload(out, game);
+         } catch (RuntimeException e) {
+             out.position(start);  // drop the partial frame
+             throw e;
+         }
+         out.putInt(start, payload);
+         out.putInt(start + 4, checksum(out, start + FRAME_HEADER_BYTES, payload));
+         if (out != buffer) {
+             out.flip();
+             writeFully(channel, out);
+         }
+         gamesWritten++;
+     }
+
+     /** Push buffered frames to the file. */
+     @Override
+     public synchronized void flush() throws IOException {
+         flushBuffer();
+     }
+
+     private void flushBuffer() throws IOException {
+         buffer.flip();
+         writeFully(channel, buffer);
+         buffer.clear();
+     }
+
+     @Override
+     public synchronized void close() throws IOException {
+         try {
+             flushBuffer();
+         } finally {
+             channel.close();
+         }
+     }
+ }
+
+ //============================================================================
+ //READER
+ //============================================================================
+ /**
+  * Streams the games of a record file in order with a read-ahead buffer:
+  * {@code for (GameRecord g; (g = reader.next()) != null; ) ...}
+  */
+ static final class Reader implements AutoCloseable {
+     private final FileChannel channel;
+     private final boolean ownsChannel;
+     private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+     private long bufferOffset;  // file offset of buffer position 0
+     private long validEnd = HEADER_BYTES;
+     private boolean torn;
+
+     private Reader(FileChannel channel, boolean ownsChannel) throws IOException {
+         this.channel = channel;
+         this.ownsChannel = ownsChannel;
+         ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+         while (header.hasRemaining() && channel.read(header, header.position()) > 0) { }
+         header.flip();
+         if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) throw new IOException("Not a game record file");
+         if (header.getShort() != VERSION) throw new IOException("Unsupported game record file version");
+         bufferOffset = HEADER_BYTES;
+         buffer.limit(0);
+     }
+
+     static Reader open(Path file) throws IOException {
+         FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+         try {
+             return new Reader(channel, true);
+         } catch (IOException | RuntimeException e) {
+             channel.close();
+             throw e;
+         }
+     }
+
+     /** File offset just past the last complete, checksummed frame read so far. */
+     public long getValidEnd() { return validEnd; }
+
+     /** Whether reading stopped at a half-written last frame. */
+     public boolean isTorn() { return torn; }
+
+     /** The next game, or null at the end of the file (or at a torn last frame). */
+     public GameRecord next() throws IOException {
+         if (!fill(FRAME_HEADER_BYTES)) return null;
+         int payload = buffer.getInt(buffer.position());
+         int expected = buffer.getInt(buffer.position() + 4);
+         if (payload < 0 || payload > MAX_PAYLOAD_BYTES) {
+             throw new IOException("Corrupt game record frame at offset " + validEnd);
+         }
+         if (!fill(FRAME_HEADER_BYTES + payload)) return null;
+
+         int start = buffer.position() + FRAME_HEADER_BYTES;
+         if (checksum(buffer, start, payload) != expected) {
+             throw new IOException("Checksum mismatch in game record at offset " + validEnd);
+         }
+         int limit = buffer.limit();
+         buffer.position(start).limit(start + payload);
+         GameRecord game = getPayload(buffer.slice().order(ByteOrder.LITTLE_ENDIAN));
+         buffer.limit(limit).position(start + payload);
+         validEnd += FRAME_HEADER_BYTES + payload;
+         return game;
+     }
+
+     // Make at least n bytes available from the buffer position; false at the end of the file
+     private boolean fill(int n) throws IOException {
+         if (buffer.remaining() >= n) return true;
+         bufferOffset += buffer.position();
+         if (n > buffer.capacity()) {
+             ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(n, 2 * buffer.capacity())).order(ByteOrder.LITTLE_ENDIAN);
+             buffer = bigger.put(buffer);
+         } else {
+             buffer.compact();
+         }
+         while (buffer.position() < n) {
+             int read = channel.read(buffer, bufferOffset + buffer.position());
+             if (read <= 0) break;
+         }
+         buffer.flip();
+         if (buffer.remaining() >= n) return true;
+         torn = buffer.hasRemaining();
+         return false;
+     }
+
+     @Override
+     public void close() throws IOException {
+         if (ownsChannel) channel.close();
+     }
+ }
+}
@@ -0,0 +1,212 @@
+package game;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//============================================================================
+//GAME SERVER (line-based TCP front end for many GameSessions)
+//============================================================================
+/**
+ * Hosts any number of concurrent GameSessions behind a line-based protocol
+ * on a local TCP port. Every connection gets its own virtual thread, so
+ * thousands of clients (typically one per session) block on their sockets
+ * cheaply while CPU replies for different sessions are computed in parallel.
+ *
+ * Requests and replies are one line each; replies start with OK or ERR:
+ *   NEW [size] [strategy]   -> OK id position
+ *   MOVE id row col value   -> OK outcome cpu-move(r,c,v or -) position
+ *   STATE id                -> OK position
+ *   CLOSE id                -> OK
+ *   QUIT                    -> closes the connection
+ * "position" is GameSession.describe(). The outcome is 0 (rejected, move
+ * again), 1 (accepted) or 2 (the human had no legal move: the deadlock
+ * penalty was applied, the move ignored and the CPU replied); a client with
+ * no legal move sends any in-range move to take its deadlock. Strategies are
+ * Tournament.Player ids; the default is score. Sizes go up to
+ * MAX_SESSION_SIZE: puzzles are generated on the request thread, and above
+ * 6x6 a single one can take seconds.
+ *
+ * Sessions live in a SessionStore. Once a second idle sessions are parked
+ * and later spilled to its snapshot file; the next request for one brings
+ * it back.
+ */
+class GameServer implements AutoCloseable {
+ static final int DEFAULT_PORT = 7457;
+ static final long DEFAULT_CPU_BUDGET_NANOS = 20_000_000;
+ static final int MAX_SESSION_SIZE = 6;
+ private static final int MAX_LINE = 256;
+ private static final String NO_SESSION = "ERR No such session";
+
+ private final ServerSocket serverSocket;
+ private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+ private final SessionStore sessions;
+ private final ScheduledExecutorService evictor;
+ private final Map<Integer, PuzzleGenerator> generators = new ConcurrentHashMap<>();
+ private final AtomicLong nextId = new AtomicLong(1);
+ private final long cpuBudgetNanos;
+ private final Thread acceptor;
+
+ /** Listen on the loopback interface (port 0 picks a free port) and start accepting. */
+ GameServer(int port, long cpuBudgetNanos) throws IOException {
+     this(port, cpuBudgetNanos, new SessionStore(tempSnapshotFile(),
+                                                SessionStore.DEFAULT_PARK_AFTER_NANOS, SessionStore.DEFAULT_SPILL_AFTER_NANOS));
+ }
+
+ /** As above, with sessions kept in {@code sessions}; the server closes the store. */
+ GameServer(int port, long cpuBudgetNanos, SessionStore sessions) throws IOException {
+     this.cpuBudgetNanos = cpuBudgetNanos;
+     this.sessions = sessions;
+     evictor = Executors.newSingleThreadScheduledExecutor(
+         Thread.ofPlatform().name("game-server-evict").daemon().factory());
+     evictor.scheduleWithFixedDelay(this::evictIdle, 1, 1, TimeUnit.SECONDS);
+     serverSocket = new ServerSocket();
+     serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+     acceptor = Thread.ofPlatform().name("game-server-accept").daemon().start(this::acceptLoop);
+ }
+
+ private static Path tempSnapshotFile() throws IOException {
+     Path file = Files.createTempFile("towers-sessions", ".bin");
+     file.toFile().deleteOnExit();
+     return file;
+ }
+
+ public int getPort() { return serverSocket.getLocalPort(); }
+ public int getSessionCount() { return sessions.size(); }
+
+ // === SESSIONS ===
+ GameSession newSession(int size, Tournament.Player strategy) {
+     if (size < TowersConstraintGraph.MIN_SIZE || size > MAX_SESSION_SIZE) {
+         throw new IllegalArgumentException("Board size must be " + TowersConstraintGraph.MIN_SIZE + ".." + MAX_SESSION_SIZE + ": " + size);
+     }
+     PuzzleGenerator generator = generators.computeIfAbsent(size, PuzzleGenerator::new);
+     SplittableRandom random = new SplittableRandom();
+     long id = nextId.getAndIncrement();
+     GameSession session = new GameSession(id, generator.generate(random), strategy, cpuBudgetNanos, random);
+     sessions.put(session);
+     return session;
+ }
+
+ GameSession getSession(long id) {
+     return sessions.get(id);
+ }
+
+ boolean closeSession(long id) {
+     return sessions.remove(id);
+ }
+
+ private void evictIdle() {
+     try {
+         sessions.evictIdle();
+     } catch (UncheckedIOException e) {
+         // The session stays parked in memory; try again next round
+         System.err.println("Session spill failed: " + e.getMessage());
+     }
+ }
+
+ // === NETWORK ===
+ private void acceptLoop() {
+     while (!serverSocket.isClosed()) {
+         try {
+             Socket socket = serverSocket.accept();
+             connections.execute(() -> serve(socket));
+         } catch (IOException e) {
+             if (!serverSocket.isClosed()) System.err.println("Accept failed: " + e.getMessage());
+         }
+     }
+ }
+
+ private void serve(Socket socket) {
+     try (socket;
+          BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+          PrintWriter out = new PrintWriter(socket.getOutputStream(), false, StandardCharsets.US_ASCII)) {
+         socket.setTcpNoDelay(true);
+         for (String line; (line = in.readLine()) != null; ) {
+             if (line.length() > MAX_LINE) {
+                 out.println("ERR Request too long");
+             } else if (line.trim().equalsIgnoreCase("QUIT")) {
+                 break;
+             } else {
+                 out.println(handle(line.trim()));
+             }
+             out.flush();
+         }
+     } catch (IOException e) {
+         // Client went away; its sessions stay until closed
+     }
+ }
+
+ /** Answer one request line. */
+ String handle(String line) {
+     String[] args = line.split("\\s+");
+     try {
+         return switch (args[0].toUpperCase(Locale.ROOT)) {
+             case "NEW" -> newGame(args);
+             case "MOVE" -> move(args);
+             case "STATE" -> {
+                 String position = args.length > 1 ? sessions.withSession(Long.parseLong(args[1]), GameSession::describe) : null;
+                 yield position == null ? NO_SESSION : "OK " + position;
+             }
+             case "CLOSE" -> args.length > 1 && closeSession(Long.parseLong(args[1])) ? "OK" : NO_SESSION;
+             default -> "ERR Unknown command " + args[0];
+         };
+     } catch (IllegalArgumentException | IllegalStateException | UncheckedIOException e) {
+         return "ERR " + e.getMessage();
+     }
+ }
+
+ private String newGame(String[] args) {
+     int size = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+     Tournament.Player strategy = args.length > 2 ? Tournament.Player.parse(args[2]) : Tournament.Player.SCORE;
+     long id = newSession(size, strategy).getId();
+     String position = sessions.withSession(id, GameSession::describe);  // it may be parked already
+     return position == null ? NO_SESSION : "OK " + id + " " + position;
+ }
+
+ private String move(String[] args) {
+     if (args.length != 5) return "ERR Usage: MOVE id row col value";
+     int row = Integer.parseInt(args[2]), col = Integer.parseInt(args[3]), value = Integer.parseInt(args[4]);
+     GameSession.MoveResult result = sessions.withSession(Long.parseLong(args[1]), s -> s.move(row, col, value));
+     if (result == null) return NO_SESSION;
+     int[] cpu = result.cpuMove();
+     return "OK " + result.outcome() + " "
+         + (cpu == null ? "-" : cpu[0] + "," + cpu[1] + "," + cpu[2]) + " " + result.position();
+ }
+
+ @Override
+ public void close() throws IOException {
+     serverSocket.close();
+     connections.shutdownNow();
+     evictor.shutdownNow();
+     sessions.close();
+ }
+
+ public static void main(String[] args) throws IOException, InterruptedException {
+     int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+     long budget = args.length > 1 ? Long.parseLong(args[1]) * 1_000_000 : DEFAULT_CPU_BUDGET_NANOS;
+     GameServer server = args.length > 2
+         ? new GameServer(port, budget, new SessionStore(Path.of(args[2]), SessionStore.DEFAULT_PARK_AFTER_NANOS,
+                                                         SessionStore.DEFAULT_SPILL_AFTER_NANOS))
+         : new GameServer(port, budget);
+     System.out.println("Towers game server on 127.0.0.1:" + server.getPort() + ", CPU budget " + budget / 1_000_000 + " ms");
+     server.acceptor.join();
+ }
+}
@@ -0,0 +1,166 @@
+package game;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+//============================================================================
+//GAME SESSION (one headless human-vs-CPU game)
+//============================================================================
+/**
+ * A GameState plus the CPU strategy playing it, driven by requests instead
+ * of Swing events. A human move runs the same turn sequence as
+ * TowersGameGUI: deadlock check, the human move, and if it was accepted (or
+ * the human was deadlocked) the CPU's deadlock check and reply. The CPU's
+ * search stops at a per-session Deadline, so a move request finishes within
+ * the budget plus one greedy evaluation.
+ *
+ * Every access goes through the session's ReentrantLock. Moves for different
+ * sessions run in parallel, and a session never sees two moves at once.
+ * ReentrantLock rather than synchronized keeps a blocked virtual thread from
+ * pinning its carrier thread.
+ *
+ * A SessionStore may park an idle session: it takes the GameRecord and drops
+ * this object. Parking skips a session that is in use, and a parked session
+ * refuses further moves and reads with a ParkedException, so a move never
+ * lands on a discarded copy; SessionStore.withSession catches it and retries
+ * on the rehydrated session.
+ */
+class GameSession {
+ private final long id;
+ private final GameState state;
+ private final Tournament.Player strategy;
+ private final MoveEvaluator cpu;
+ private final long cpuBudgetNanos;
+ private final ReentrantLock lock = new ReentrantLock();
+ private volatile long lastAccessNanos = System.nanoTime();
+ private boolean parked;  // guarded by lock
+
+ /** Thrown by a session that was parked after the caller looked it up. */
+ static final class ParkedException extends IllegalStateException {
+     private static final long serialVersionUID = 1L;
+
+     ParkedException(long id) {
+         super("Session " + id + " is parked");
+     }
+ }
+
+ /** MoveResult outcomes: the move was refused, played, or ignored because the human was deadlocked. */
+ static final int REJECTED = 0, ACCEPTED = 1, DEADLOCKED = 2;
+
+ /** Outcome of a move request (REJECTED, ACCEPTED or DEADLOCKED), the CPU's reply (or null) and the position after. */
+ record MoveResult(int outcome, int[] cpuMove, String position) {}
+
+ GameSession(long id, Puzzle puzzle, Tournament.Player strategy, long cpuBudgetNanos, SplittableRandom random) {
+     this(id, puzzle.newGame(), strategy, cpuBudgetNanos, random);
+ }
+
+ GameSession(long id, GameState state, Tournament.Player strategy, long cpuBudgetNanos, SplittableRandom random) {
+     this.id = id;
+     this.state = state;
+     this.strategy = strategy;
+     this.cpuBudgetNanos = cpuBudgetNanos;
+     cpu = strategy.create(state, random);
+ }
+
+ /** Rebuild a parked session by replaying its record; it is the human's turn again. */
+ GameSession(long id, GameRecord record, Tournament.Player strategy, long cpuBudgetNanos, SplittableRandom random) {
+     this(id, record.replay(), strategy, cpuBudgetNanos, random);
+     state.setHumanTurn(true);
+ }
+
+ public long getId() { return id; }
+ public Tournament.Player getStrategy() { return strategy; }
+ public long getCpuBudgetNanos() { return cpuBudgetNanos; }
+ /** System.nanoTime() of the last move or read. */
+ public long getLastAccessNanos() { return lastAccessNanos; }
+
+ /**
+  * Play a human move and, if the turn passes, the CPU's reply. The move is
+  * REJECTED if the game rejected it (the human moves again) or the game is
+  * already over. If the human has no legal move, the deadlock penalty is
+  * applied instead, the move itself is ignored and the outcome is DEADLOCKED;
+  * the CPU then replies as usual.
+  */
+ public MoveResult move(int row, int col, int value) {
+     int size = state.getSize();
+     if (row < 0 || row >= size || col < 0 || col >= size || value < 1 || value > size) {
+         throw new IllegalArgumentException("Move out of range: " + value + " at (" + row + "," + col + ")");
+     }
+     lock.lock();
+     try {
+         if (parked) throw new ParkedException(id);
+         lastAccessNanos = System.nanoTime();
+         if (state.isGameOver()) return new MoveResult(REJECTED, null, describe(state));
+         state.setHumanTurn(true);
+         boolean deadlocked = state.checkForDeadlock(true);
+         if (!deadlocked && !state.makeMove(row, col, value, true)) {
+             return new MoveResult(REJECTED, null, describe(state));
+         }
+         state.setHumanTurn(false);
+         int[] reply = playCpu();
+         state.setHumanTurn(true);
+         return new MoveResult(deadlocked ? DEADLOCKED : ACCEPTED, reply, describe(state));
+     } finally {
+         lock.unlock();
+     }
+ }
+
+ private int[] playCpu() {
+     if (state.isGameOver() || state.checkForDeadlock(false)) return null;
+     int[] move = cpu.findBestMove(Deadline.after(cpuBudgetNanos));
+     return move != null && state.makeMove(move[0], move[1], move[2], false) ? move : null;
+ }
+
+ /** Run {@code action} on the game state while holding the session lock. */
+ public <T> T read(Function<GameState, T> action) {
+     lock.lock();
+     try {
+         if (parked) throw new ParkedException(id);
+         lastAccessNanos = System.nanoTime();
+         return action.apply(state);
+     } finally {
+         lock.unlock();
+     }
+ }
+
+ /**
+  * Park the session if it has not been used since {@code cutoffNanos} and
+  * nobody holds it now. Returns its record, or null if it stays live.
+  */
+ GameRecord parkIfIdle(long cutoffNanos) {
+     if (!lock.tryLock()) return null;
+     try {
+         if (parked || lastAccessNanos - cutoffNanos > 0) return null;
+         parked = true;
+         return GameRecord.of(state);
+     } finally {
+         lock.unlock();
+     }
+ }
+
+ /**
+  * One-line snapshot used by the server protocol:
+  * size, turn (H/C), over (0/1), human score, human lives, CPU score,
+  * CPU lives, the grid as row-major digits, then the top, right, bottom and
+  * left clues as digit strings.
+  */
+ public String describe() {
+     return read(GameSession::describe);
+ }
+
+ static String describe(GameState s) {
+     StringBuilder sb = new StringBuilder(64);
+     sb.append(s.getSize()).append(' ')
+       .append(s.isHumanTurn() ? 'H' : 'C').append(' ')
+       .append(s.isGameOver() ? 1 : 0).append(' ')
+       .append(s.getHumanScore()).append(' ').append(s.getHumanLives()).append(' ')
+       .append(s.getCpuScore()).append(' ').append(s.getCpuLives()).append(' ');
+     for (int[] row : s.getGrid()) for (int v : row) sb.append(v);
+     for (int[] clues : new int[][]{s.getTopClues(), s.getRightClues(), s.getBottomClues(), s.getLeftClues()}) {
+         sb.append(' ');
+         for (int v : clues) sb.append(v);
+     }
+     return sb.toString();
+ }
+}
@@ -0,0 +1,193 @@
+package game;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ExecutionException;
+
+//============================================================================
+//LOAD GENERATOR (simulated players against a GameServer)
+//============================================================================
+/**
+ * Opens one connection per simulated player, each on its own virtual thread.
+ * Each player starts a game, answers every position with a random move that
+ * is legal by the Latin rule (or, with none left, a placeholder move so the
+ * server applies the deadlock), starts a new game when one ends, and keeps
+ * going until the run time is up. The round trip of every MOVE request
+ * (human move plus the CPU's reply) is timed. The report gives the p50, p99
+ * and maximum latency and the overall move rate.
+ *
+ * Usage: LoadGenerator <clients> <seconds> [size] [strategy] [port]
+ * Without a port an embedded server is started on a free port.
+ */
+class LoadGenerator {
+ private final int port;
+ private final int size;
+ private final String strategy;
+
+ LoadGenerator(int port, int size, String strategy) {
+     this.port = port;
+     this.size = size;
+     this.strategy = strategy;
+ }
+
+ /** Latencies in nanoseconds of every move request, plus games finished. */
+ record Result(long[] latencies, long games, long errors, double seconds) {
+     long percentile(double fraction) {
+         if (latencies.length == 0) return 0;
+         return latencies[Math.min(latencies.length - 1, (int) Math.ceil(fraction * latencies.length) - 1)];
+     }
+ }
+
+ Result run(int clients, long durationNanos) throws InterruptedException {
+     long start = System.nanoTime();
+     long end = start + durationNanos;
+     List<Future<Client>> futures = new ArrayList<>();
+     try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+         for (int i = 0; i < clients; i++) {
+             long seed = i;
+             futures.add(pool.submit(() -> new Client(seed).play(end)));
+         }
+     }
+     long[] all = new long[0];
+     long games = 0, errors = 0;
+     for (Future<Client> f : futures) {
+         try {
+             Client c = f.get();
+             int n = all.length;
+             all = Arrays.copyOf(all, n + c.count);
+             System.arraycopy(c.latencies, 0, all, n, c.count);
+             games += c.games;
+             errors += c.errors;
+         } catch (ExecutionException e) {
+             errors++;
+         }
+     }
+     Arrays.sort(all);
+     return new Result(all, games, errors, (System.nanoTime() - start) / 1e9);
+ }
+
+ //============================================================================
+ //CLIENT
+ //============================================================================
+ private final class Client {
+     final SplittableRandom random;
+     long[] latencies = new long[1024];
+     int count;
+     long games, errors;
+
+     Client(long seed) {
+         random = new SplittableRandom(seed);
+     }
+
+     Client play(long end) throws IOException {
+         try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+              BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+              PrintWriter out = new PrintWriter(socket.getOutputStream(), false, StandardCharsets.US_ASCII)) {
+             socket.setTcpNoDelay(true);
+             while (System.nanoTime() < end) {
+                 String[] reply = request(in, out, "NEW " + size + " " + strategy);
+                 if (reply == null) continue;
+                 String id = reply[1];
+                 String[] position = Arrays.copyOfRange(reply, 2, reply.length);
+                 while (!isOver(position) && System.nanoTime() < end) {
+                     int[] move = randomMove(position);
+                     if (move == null) move = new int[]{0, 0, 1};  // deadlocked: any move makes the server apply it
+                     long t0 = System.nanoTime();
+                     reply = request(in, out, "MOVE " + id + " " + move[0] + " " + move[1] + " " + move[2]);
+                     record(System.nanoTime() - t0);
+                     if (reply == null) break;
+                     position = Arrays.copyOfRange(reply, 3, reply.length);
+                 }
+                 if (isOver(position)) games++;
+                 request(in, out, "CLOSE " + id);
+             }
+             out.println("QUIT");
+             out.flush();
+         }
+         return this;
+     }
+
+     private String[] request(BufferedReader in, PrintWriter out, String line) throws IOException {
+         out.println(line);
+         out.flush();
+         String reply = in.readLine();
+         if (reply == null) throw new IOException("Server closed the connection");
+         if (!reply.startsWith("OK")) {
+             errors++;
+             return null;
+         }
+         return reply.split(" ");
+     }
+
+     private void record(long nanos) {
+         if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+         latencies[count++] = nanos;
+     }
+
+     // position = size, turn, over, scores/lives (4), grid, 4 clue strings
+     private boolean isOver(String[] position) {
+         return position[2].equals("1");
+     }
+
+     private int[] randomMove(String[] position) {
+         int n = Integer.parseInt(position[0]);
+         String grid = position[7];
+         int[] rowUsed = new int[n], colUsed = new int[n];
+         for (int cell = 0; cell < n * n; cell++) {
+             int v = grid.charAt(cell) - '0';
+             if (v == 0) continue;
+             rowUsed[cell / n] |= 1 << (v - 1);
+             colUsed[cell % n] |= 1 << (v - 1);
+         }
+         int[] chosen = null;
+         int seen = 0;
+         for (int cell = 0; cell < n * n; cell++) {
+             if (grid.charAt(cell) != '0') continue;
+             int free = ((1 << n) - 1) & ~(rowUsed[cell / n] | colUsed[cell % n]);
+             while (free != 0) {
+                 int v = Integer.numberOfTrailingZeros(free) + 1;
+                 free &= free - 1;
+                 if (random.nextInt(++seen) == 0) chosen = new int[]{cell / n, cell % n, v};
+             }
+         }
+         return chosen;
+     }
+ }
+
+ public static void main(String[] args) throws IOException, InterruptedException {
+     if (args.length < 2) {
+         System.err.println("Usage: LoadGenerator <clients> <seconds> [size] [strategy] [port]");
+         return;
+     }
+     int clients = Integer.parseInt(args[0]);
+     long duration = (long) (Double.parseDouble(args[1]) * 1e9);
+     int size = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+     String strategy = args.length > 3 ? args[3] : "score";
+     GameServer embedded = args.length > 4 ? null : new GameServer(0, GameServer.DEFAULT_CPU_BUDGET_NANOS);
+     int port = embedded != null ? embedded.getPort() : Integer.parseInt(args[4]);
+
+     try {
+         Result r = new LoadGenerator(port, size, strategy).run(clients, duration);
+         System.out.printf(Locale.ROOT, "%d clients, %dx%d vs %s, %.1f s: %d moves (%.0f/s), %d games, %d errors%n",
+             clients, size, size, strategy, r.seconds(), r.latencies().length, r.latencies().length / r.seconds(),
+             r.games(), r.errors());
+         System.out.printf(Locale.ROOT, "move latency: p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+             r.percentile(0.50) / 1e6, r.percentile(0.99) / 1e6, r.percentile(1.0) / 1e6);
+     } finally {
+         if (embedded != null) embedded.close();
+     }
+ }
+}
@@ -0,0 +1,100 @@
+package game;
+
+//============================================================================
+//MOVE EVALUATOR (common contract for CPU strategies)
+//============================================================================
+/**
+ * A strategy scores every (cell, value) candidate in one pass into a flat
+ * buffer of N*N*N doubles. Best-move selection, the heat map and the
+ * explanation are all read back from that buffer, so a position is only
+ * evaluated once per turn.
+ */
+interface MoveEvaluator {
+ /** Buffer entry for candidates the strategy would never play. */
+ double NOT_A_MOVE = Double.NEGATIVE_INFINITY;
+
+ GameState getState();
+
+ /**
+  * Fill {@code scores} (length N*N*N, see {@link #index}) with this strategy's
+  * score for every candidate; illegal or ignored candidates get NOT_A_MOVE.
+  */
+ void evaluateAll(double[] scores);
+
+ /** Reasoning for a candidate taken from the buffer; called once, for the chosen move. */
+ MoveExplanation explain(int row, int col, int value, double score);
+
+ static int index(int size, int row, int col, int value) {
+     return (row * size + col) * size + (value - 1);
+ }
+
+ static double[] newBuffer(int size) {
+     return new double[size * size * size];
+ }
+
+ /** Heat-map value of a cell: its best candidate, floored at 0. */
+ static double cellScore(double[] scores, int size, int row, int col) {
+     double max = 0;
+     int base = (row * size + col) * size;
+     for (int i = base; i < base + size; i++) max = Math.max(max, scores[i]);
+     return max;
+ }
+
+ /**
+  * Highest-scoring candidate in the buffer (first one wins ties, scanning rows,
+  * then columns, then values), or null if there is none. Records the
+  * explanation on the game state.
+  */
+ default int[] selectBest(double[] scores) {
+     int size = getState().getSize();
+     int best = -1;
+     double bestScore = NOT_A_MOVE;
+     for (int i = 0; i < scores.length; i++) {
+         if (scores[i] > bestScore) {
+             bestScore = scores[i];
+             best = i;
+         }
+     }
+     if (best == -1) return null;
+
+     int row = best / (size * size), col = (best / size) % size, value = best % size + 1;
+     getState().setCpuReasoning(explain(row, col, value, bestScore));
+     return new int[]{row, col, value};
+ }
+
+ default int[] findBestMove() {
+     double[] scores = newBuffer(getState().getSize());
+     evaluateAll(scores);
+     return selectBest(scores);
+ }
+
+ /**
+  * Like evaluateAll, but stops when the deadline expires, leaving the best
+  * scores found so far. One-pass strategies finish at once and ignore it.
+  */
+ default void evaluateAll(double[] scores, Deadline deadline) {
+     evaluateAll(scores);
+ }
+
+ /**
+  * Anytime move search: the best move found when the deadline expires or is
+  * cancelled (null only if there is no legal move). The final choice is also
+  * reported to the deadline's listener.
+  */
+ default int[] findBestMove(Deadline deadline) {
+     int size = getState().getSize();
+     double[] scores = newBuffer(size);
+     evaluateAll(scores, deadline);
+     int[] move = selectBest(scores);
+     if (move != null) deadline.report(move[0], move[1], move[2], scores[index(size, move[0], move[1], move[2])]);
+     return move;
+ }
+
+ /** Convenience single-cell lookup; callers scoring the whole board should use evaluateAll. */
+ default double evaluateCell(int row, int col) {
+     int size = getState().getSize();
+     double[] scores = newBuffer(size);
+     evaluateAll(scores);
+     return cellScore(scores, size, row, col);
+ }
+}
@@ -0,0 +1,185 @@
+package game;
+
+//============================================================================
+//PACKED POSITION (a 4x4 game position in one long)
+//============================================================================
+/**
+ * Static helpers for 4x4 positions packed into a long, so searches, caches
+ * and tablebases can hold millions of them in a plain long[] and copy one
+ * with an assignment:
+ *
+ *   bits  0-47  cell i (row-major) in bits 3i..3i+2, value 0-4 (0 = empty)
+ *   bit   48    human to move
+ *   bits 49-53  human lives / 5
+ *   bits 54-58  CPU lives / 5
+ *   bits 59-63  zero
+ *
+ * Every penalty is a multiple of 5 lives, so the lives buckets are exact.
+ * Scores do not fit and are not stored. The grid bits alone are the
+ * Tablebase key.
+ */
+final class PackedPosition {
+ static final int SIZE = 4;
+ static final int CELLS = SIZE * SIZE;
+ static final long GRID_MASK = (1L << (3 * CELLS)) - 1;
+ private static final int HUMAN_TO_MOVE_BIT = 48;
+ private static final int HUMAN_LIVES_SHIFT = 49;
+ private static final int CPU_LIVES_SHIFT = 54;
+ private static final int LIVES_STEP = 5;
+ private static final int FULL = (1 << SIZE) - 1;
+
+ /** Start of a game: empty grid, human to move, full lives. */
+ static final long NEW_GAME = withLives(withLives(1L << HUMAN_TO_MOVE_BIT, true, GameRecord.START_LIVES),
+                                        false, GameRecord.START_LIVES);
+
+ private PackedPosition() {}
+
+ // === CELLS ===
+ static int get(long pos, int cell) {
+     return (int) (pos >>> (3 * cell)) & 7;
+ }
+
+ static int get(long pos, int row, int col) {
+     return get(pos, row * SIZE + col);
+ }
+
+ /** The position with {@code cell} set to value (0 clears it). */
+ static long set(long pos, int cell, int value) {
+     return pos & ~(7L << (3 * cell)) | (long) value << (3 * cell);
+ }
+
+ static long set(long pos, int row, int col, int value) {
+     return set(pos, row * SIZE + col, value);
+ }
+
+ static long grid(long pos) {
+     return pos & GRID_MASK;
+ }
+
+ static int filledCount(long pos) {
+     int n = 0;
+     for (int cell = 0; cell < CELLS; cell++) if (get(pos, cell) != 0) n++;
+     return n;
+ }
+
+ /** The grid with every cell moved to map[cell], e.g. a Symmetry.cellMap; other bits are kept. */
+ static long permute(long pos, int[] map) {
+     long grid = 0;
+     for (int cell = 0; cell < CELLS; cell++) grid |= (long) get(pos, cell) << (3 * map[cell]);
+     return pos & ~GRID_MASK | grid;
+ }
+
+ // === SIDE TO MOVE & LIVES ===
+ static boolean isHumanToMove(long pos) {
+     return (pos & 1L << HUMAN_TO_MOVE_BIT) != 0;
+ }
+
+ static long withHumanToMove(long pos, boolean humanToMove) {
+     return humanToMove ? pos | 1L << HUMAN_TO_MOVE_BIT : pos & ~(1L << HUMAN_TO_MOVE_BIT);
+ }
+
+ static int lives(long pos, boolean isHuman) {
+     return ((int) (pos >>> (isHuman ? HUMAN_LIVES_SHIFT : CPU_LIVES_SHIFT)) & 0x1F) * LIVES_STEP;
+ }
+
+ /** Lives are stored in steps of 5 (rounded down), from 0 to 100. */
+ static long withLives(long pos, boolean isHuman, int lives) {
+     if (lives < 0 || lives > GameRecord.START_LIVES) throw new IllegalArgumentException("Lives out of range: " + lives);
+     int shift = isHuman ? HUMAN_LIVES_SHIFT : CPU_LIVES_SHIFT;
+     return pos & ~(0x1FL << shift) | (long) (lives / LIVES_STEP) << shift;
+ }
+
+ // === LINES & LEGALITY ===
+ /** Values used in a row, bit v-1 for value v. */
+ static int rowMask(long pos, int row) {
+     int mask = 0;
+     for (int c = 0; c < SIZE; c++) {
+         int v = get(pos, row, c);
+         if (v != 0) mask |= 1 << (v - 1);
+     }
+     return mask;
+ }
+
+ static int columnMask(long pos, int col) {
+     int mask = 0;
+     for (int r = 0; r < SIZE; r++) {
+         int v = get(pos, r, col);
+         if (v != 0) mask |= 1 << (v - 1);
+     }
+     return mask;
+ }
+
+ /** Values that can still be placed at an empty cell by the Latin rule (0 for a filled cell). */
+ static int legalMask(long pos, int row, int col) {
+     if (get(pos, row, col) != 0) return 0;
+     return FULL & ~(rowMask(pos, row) | columnMask(pos, col));
+ }
+
+ static boolean hasAnyLegalMove(long pos) {
+     for (int cell = 0; cell < CELLS; cell++) {
+         if (legalMask(pos, cell / SIZE, cell % SIZE) != 0) return true;
+     }
+     return false;
+ }
+
+ /** A row in VisibilityTable's packed line form (4 bits per position). */
+ static long rowLine(long pos, int row) {
+     return line(pos, row * SIZE, 1);
+ }
+
+ static long columnLine(long pos, int col) {
+     return line(pos, col, SIZE);
+ }
+
+ private static long line(long pos, int first, int step) {
+     long packed = 0;
+     for (int i = 0; i < SIZE; i++) packed |= (long) get(pos, first + i * step) << (4 * i);
+     return packed;
+ }
+
+ static boolean isLineFull(long line) {
+     for (int i = 0; i < SIZE; i++) if (((line >>> (4 * i)) & 0xF) == 0) return false;
+     return true;
+ }
+
+ static boolean isRowComplete(long pos, int row) {
+     return isLineFull(rowLine(pos, row));
+ }
+
+ static boolean isColumnComplete(long pos, int col) {
+     return isLineFull(columnLine(pos, col));
+ }
+
+ /** Is the complete row a permutation showing exactly its clues (0 = no clue)? */
+ static boolean isRowValid(long pos, int row, int leftClue, int rightClue) {
+     return VisibilityTable.forSize(SIZE).isValid(rowLine(pos, row), leftClue, rightClue);
+ }
+
+ static boolean isColumnValid(long pos, int col, int topClue, int bottomClue) {
+     return VisibilityTable.forSize(SIZE).isValid(columnLine(pos, col), topClue, bottomClue);
+ }
+
+ // === CONVERSION ===
+ static long of(GameState state) {
+     if (state.getSize() != SIZE) throw new IllegalArgumentException("Packed positions are " + SIZE + "x" + SIZE + " only");
+     int[][] grid = state.getGrid();
+     long pos = 0;
+     for (int cell = 0; cell < CELLS; cell++) pos |= (long) grid[cell / SIZE][cell % SIZE] << (3 * cell);
+     pos = withHumanToMove(pos, state.isHumanTurn());
+     pos = withLives(pos, true, state.getHumanLives());
+     return withLives(pos, false, state.getCpuLives());
+ }
+
+ /** A game on the given clues at this position, with no history and both scores 0. */
+ static GameState toGameState(long pos, int[] top, int[] right, int[] bottom, int[] left) {
+     return toGameState(pos, top, right, bottom, left, 0, 0);
+ }
+
+ /** A game on the given clues at this position with no history; scores are not packed, so they are passed in. */
+ static GameState toGameState(long pos, int[] top, int[] right, int[] bottom, int[] left, int humanScore, int cpuScore) {
+     int[][] grid = new int[SIZE][SIZE];
+     for (int cell = 0; cell < CELLS; cell++) grid[cell / SIZE][cell % SIZE] = get(pos, cell);
+     return GameState.atPosition(top, right, bottom, left, grid, humanScore, cpuScore,
+                                 lives(pos, true), lives(pos, false), isHumanToMove(pos));
+ }
+}
@@ -0,0 +1,147 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+//============================================================================
+//PARALLEL SKYSCRAPER SOLVER (fork/join over the top of the search tree)
+//============================================================================
+/**
+ * Work-stealing version of SkyscraperSolver for large boards. The search
+ * branches on the same most-constrained cell the sequential solver picks.
+ * Near the root each candidate value becomes its own fork/join task on a
+ * private copy of the board. Deeper down, or once the pool has enough queued
+ * work, a task finishes its subtree sequentially.
+ *
+ * All tasks share one solution counter. Once it reaches the limit (the first
+ * solution for limit 1, the second one proving non-uniqueness for limit 2),
+ * every branch stops at its next node.
+ */
+class ParallelSkyscraperSolver {
+ private static final int MAX_SPLIT_DEPTH = 6;
+ private static final int SURPLUS_TASKS = 2;  // keep forking while fewer tasks than this are queued
+
+ private final SkyscraperSolver model;
+ private final ForkJoinPool pool;
+
+ private int limit;
+ private AtomicInteger solutions;
+ private AtomicReference<int[]> firstSolution;
+ private LongAdder nodes;
+
+ ParallelSkyscraperSolver(SkyscraperSolver model) {
+     this(model, ForkJoinPool.commonPool());
+ }
+
+ ParallelSkyscraperSolver(SkyscraperSolver model, ForkJoinPool pool) {
+     this.model = model;
+     this.pool = pool;
+ }
+
+ public long getNodeCount() { return nodes == null ? 0 : nodes.sum(); }
+
+ /** Number of solutions, counting no further than {@code limit}. */
+ public int countSolutions(int limit) {
+     this.limit = limit;
+     solutions = new AtomicInteger();
+     firstSolution = new AtomicReference<>();
+     nodes = new LongAdder();
+     SkyscraperSolver.Board board = model.initialBoard();
+     if (board != null && limit > 0) pool.invoke(new SearchTask(board, 0));
+     return Math.min(solutions.get(), limit);
+ }
+
+ public boolean hasUniqueSolution() {
+     return countSolutions(2) == 1;
+ }
+
+ /** A solution found by the last count, as grid[row][col], or null if there was none. */
+ public int[][] getSolution() {
+     int[] cells = firstSolution == null ? null : firstSolution.get();
+     if (cells == null) return null;
+     int size = model.getSize();
+     int[][] grid = new int[size][size];
+     for (int r = 0; r < size; r++) System.arraycopy(cells, r * size, grid[r], 0, size);
+     return grid;
+ }
+
+ private boolean done() {
+     return solutions.get() >= limit;
+ }
+
+ private void recordSolution(SkyscraperSolver.Board board) {
+     if (solutions.incrementAndGet() == 1) firstSolution.compareAndSet(null, board.cells.clone());
+ }
+
+ //============================================================================
+ //SEARCH TASK
+ //============================================================================
+ private class SearchTask extends RecursiveAction {
+     private static final long serialVersionUID = 1L;
+
+     // Tasks are never serialized; the board is per-task search state
+     private final transient SkyscraperSolver.Board board;
+     private final int depth;
+
+     SearchTask(SkyscraperSolver.Board board, int depth) {
+         this.board = board;
+         this.depth = depth;
+     }
+
+     @Override
+     protected void compute() {
+         if (depth < MAX_SPLIT_DEPTH && getSurplusQueuedTaskCount() < SURPLUS_TASKS) {
+             split();
+         } else {
+             search(board);
+         }
+     }
+
+     // One subtask per candidate of the most constrained cell, each on its own board copy
+     private void split() {
+         if (done()) return;
+         nodes.increment();
+         int cell = model.pickCell(board);
+         if (cell == -2) return;
+         if (cell == -1) {
+             recordSolution(board);
+             return;
+         }
+         List<SearchTask> children = new ArrayList<>();
+         int mask = board.candidates(cell);
+         while (mask != 0) {
+             int bit = mask & -mask;
+             mask &= mask - 1;
+             SkyscraperSolver.Board child = board.copy();
+             if (model.place(child, cell, Integer.numberOfTrailingZeros(bit) + 1)) {
+                 children.add(new SearchTask(child, depth + 1));
+             }
+         }
+         invokeAll(children);
+     }
+
+     private void search(SkyscraperSolver.Board b) {
+         if (done()) return;
+         nodes.increment();
+         int cell = model.pickCell(b);
+         if (cell == -2) return;
+         if (cell == -1) {
+             recordSolution(b);
+             return;
+         }
+         int mask = b.candidates(cell);
+         while (mask != 0 && !done()) {
+             int bit = mask & -mask;
+             mask &= mask - 1;
+             int mark = b.trailSize;
+             if (model.place(b, cell, Integer.numberOfTrailingZeros(bit) + 1)) search(b);
+             b.undo(cell, mark);
+         }
+     }
+ }
+}
@@ -0,0 +1,334 @@
+package game;
+
+import java.util.Arrays;
+
+//============================================================================
+//POSITION BATCH (structure-of-arrays evaluation of many positions at once)
+//============================================================================
+/**
+ * Many positions of one board size, stored as structure-of-arrays so that a
+ * kernel walks each array front to back and the innermost loop always runs
+ * over positions. Each plane holds one quantity for every position, and
+ * position p of plane k sits at {@code k * capacity + p}:
+ *
+ *   cells    N*N planes (row-major cell), values 0-N, 0 = empty
+ *   clues    4N planes: top, right, bottom, left, N each
+ *   lives    2 planes: human, CPU
+ *
+ * The kernels answer the same questions as GameState and the one-pass
+ * strategies, with the same results, for thousands of positions per call:
+ * legal-move masks, visibility of complete lines, and each cell's strategy
+ * score with the value the strategy would play there. Inner loops are plain
+ * array walks over positions with the per-line and per-cell offsets hoisted
+ * out, which the JIT unrolls and, for the shared passes, vectorizes.
+ * Producers may fill the planes directly (see getCells etc.) or go through
+ * add(GameState).
+ */
+final class PositionBatch {
+ /** lineValidity results: the line still has gaps, shows its clues, or does not. */
+ static final byte LINE_INCOMPLETE = 0, LINE_VALID = 1, LINE_INVALID = 2;
+
+ private final int size;
+ private final int capacity;
+ private final int fullMask;
+ private final VisibilityTable visibility;
+ private int count;
+
+ private final byte[] cells;
+ private final byte[] clues;
+ private final byte[] lives;
+
+ // Scratch planes shared by the kernels, one entry per (line or cell, position)
+ private final short[] rowUsed, colUsed, legal;
+ private final byte[] rowEmpty, colEmpty;
+ private final long[] rowLine, colLine;
+ private final double[] best, livesScale, livesBonus;
+
+ PositionBatch(int size, int capacity) {
+     if (size < TowersConstraintGraph.MIN_SIZE || size > TowersConstraintGraph.MAX_SIZE) {
+         throw new IllegalArgumentException("Unsupported board size: " + size);
+     }
+     if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive");
+     this.size = size;
+     this.capacity = capacity;
+     fullMask = (1 << size) - 1;
+     visibility = VisibilityTable.forSize(size);
+     cells = new byte[size * size * capacity];
+     clues = new byte[4 * size * capacity];
+     lives = new byte[2 * capacity];
+     rowUsed = new short[size * capacity];
+     colUsed = new short[size * capacity];
+     legal = new short[size * size * capacity];
+     rowEmpty = new byte[size * capacity];
+     colEmpty = new byte[size * capacity];
+     rowLine = new long[size * capacity];
+     colLine = new long[size * capacity];
+     best = new double[capacity];
+     livesScale = new double[capacity];
+     livesBonus = new double[capacity];
+ }
+
+ public int getSize() { return size; }
+ public int getCapacity() { return capacity; }
+ public int getCount() { return count; }
+
+ /** Cell planes, {@code cells[(row * N + col) * capacity + p]}. */
+ public byte[] getCells() { return cells; }
+ /** Clue planes, {@code clues[(side * N + i) * capacity + p]}, sides top, right, bottom, left. */
+ public byte[] getClues() { return clues; }
+ /** Lives planes, {@code lives[(isHuman ? 0 : 1) * capacity + p]}. */
+ public byte[] getLives() { return lives; }
+
+ /** Positions 0..count-1 are in use, for producers that fill the planes directly. */
+ public void setCount(int count) {
+     if (count < 0 || count > capacity) throw new IllegalArgumentException("Count out of range: " + count);
+     this.count = count;
+ }
+
+ public void clear() { count = 0; }
+
+ // === LOADING ===
+ /** Append a position; returns its index. */
+ int add(GameState state) {
+     if (count == capacity) throw new IllegalStateException("Batch is full");
+     set(count, state);
+     return count++;
+ }
+
+ void set(int p, GameState state) {
+     if (state.getSize() != size) throw new IllegalArgumentException("Batch holds " + size + "x" + size + " positions");
+     int[][] grid = state.getGrid();
+     for (int cell = 0; cell < size * size; cell++) cells[cell * capacity + p] = (byte) grid[cell / size][cell % size];
+     int[][] sides = {state.getTopClues(), state.getRightClues(), state.getBottomClues(), state.getLeftClues()};
+     for (int side = 0; side < 4; side++) {
+         for (int i = 0; i < size; i++) clues[(side * size + i) * capacity + p] = (byte) sides[side][i];
+     }
+     lives[p] = (byte) state.getHumanLives();
+     lives[capacity + p] = (byte) state.getCpuLives();
+ }
+
+ private int clue(int side, int i, int p) {
+     return clues[(side * size + i) * capacity + p];
+ }
+
+ // === KERNELS ===
+ /**
+  * Latin-legal values of every cell (bit v-1 = value v, 0 for a filled
+  * cell), as GameState.legalMask, into {@code out[cell * capacity + p]}.
+  */
+ void legalMasks(short[] out) {
+     computeLegal();
+     System.arraycopy(legal, 0, out, 0, legal.length);
+ }
+
+ /**
+  * For every row (lines 0..N-1) and column (lines N..2N-1), whether it is
+  * complete and shows its clues, as GameState.validateRowVisibility, into
+  * {@code out[line * capacity + p]}: LINE_INCOMPLETE, LINE_VALID or LINE_INVALID.
+  */
+ void lineValidity(byte[] out) {
+     computeLines();
+     for (int k = 0; k < size; k++) {
+         lineValidity(rowLine, rowEmpty, k, 3, 1, out, k);
+         lineValidity(colLine, colEmpty, k, 0, 2, out, size + k);
+     }
+ }
+
+ private void lineValidity(long[] lines, byte[] empty, int k, int frontSide, int backSide, byte[] out, int line) {
+     int base = k * capacity, outBase = line * capacity;
+     for (int p = 0; p < count; p++) {
+         out[outBase + p] = empty[base + p] != 0 ? LINE_INCOMPLETE
+             : visibility.isValid(lines[base + p], clue(frontSide, k, p), clue(backSide, k, p)) ? LINE_VALID : LINE_INVALID;
+     }
+ }
+
+ /**
+  * Every cell's score under the strategy, into {@code scores[cell * capacity + p]},
+  * and the value it would play there, into {@code values[cell * capacity + p]}.
+  * The score is the cell's best candidate in the buffer evaluateAll fills for
+  * a single GameState (NOT_A_MOVE and value 0 if the cell has no legal
+  * value), and the value is the first candidate with that score. Only the
+  * one-pass greedy strategies (lives, completion, score, mrv) have batch
+  * kernels.
+  */
+ void evaluateCells(Tournament.Player strategy, double[] scores, byte[] values) {
+     computeLegal();
+     switch (strategy) {
+         case LIVES -> evaluateLives(scores, values);
+         case COMPLETION -> { computeLines(); evaluateCompletion(scores, values); }
+         case SCORE -> { computeLines(); evaluateScore(scores, values); }
+         case MRV -> evaluateMrv(scores, values);
+         default -> throw new IllegalArgumentException("No batch kernel for " + strategy.id);
+     }
+ }
+
+ /**
+  * The move selectBest would pick from each position's evaluateCells output,
+  * as a MoveEvaluator.index candidate, or -1 if the position has no legal
+  * move. Earlier cells win ties, as in selectBest.
+  */
+ void bestMoves(double[] scores, byte[] values, int[] out) {
+     Arrays.fill(best, 0, count, MoveEvaluator.NOT_A_MOVE);
+     Arrays.fill(out, 0, count, -1);
+     for (int cell = 0; cell < size * size; cell++) {
+         int base = cell * capacity;
+         for (int p = 0; p < count; p++) {
+             double s = scores[base + p];
+             if (s > best[p]) {
+                 best[p] = s;
+                 out[p] = cell * size + values[base + p] - 1;
+             }
+         }
+     }
+ }
+
+ // === STRATEGY KERNELS ===
+ // StrategyLives: lowest legal value; safety from the number of options, scaled up as CPU lives run low
+ private void evaluateLives(double[] scores, byte[] values) {
+     for (int p = 0; p < count; p++) {
+         int cpuLives = lives[capacity + p];
+         livesScale[p] = 25.0 * emergencyMultiplier(cpuLives);
+         livesBonus[p] = (100.0 - cpuLives) / 20.0;
+     }
+     for (int cell = 0; cell < size * size; cell++) {
+         int base = cell * capacity;
+         for (int p = 0; p < count; p++) {
+             int mask = legal[base + p];
+             double score = Integer.bitCount(mask) * livesScale[p] + livesBonus[p];
+             scores[base + p] = mask != 0 ? score : MoveEvaluator.NOT_A_MOVE;
+         }
+         lowestLegal(cell, values);
+     }
+ }
+
+ private static double emergencyMultiplier(int lives) {
+     if (lives <= 15) return 4.0;
+     if (lives <= 30) return 3.0;
+     if (lives <= 50) return 2.0;
+     if (lives <= 75) return 1.5;
+     return 1.0;
+ }
+
+ // StrategyMRV: lowest legal value; fewer options score higher
+ private void evaluateMrv(double[] scores, byte[] values) {
+     for (int cell = 0; cell < size * size; cell++) {
+         int base = cell * capacity;
+         for (int p = 0; p < count; p++) {
+             int mask = legal[base + p];
+             scores[base + p] = mask != 0 ? 1000.0 / (Integer.bitCount(mask) + 1) : MoveEvaluator.NOT_A_MOVE;
+         }
+         lowestLegal(cell, values);
+     }
+ }
+
+ // StrategyScore: every legal value scores the same, so the lowest one is played
+ private void evaluateScore(double[] scores, byte[] values) {
+     for (int cell = 0; cell < size * size; cell++) {
+         int base = cell * capacity, rowBase = cell / size * capacity, colBase = cell % size * capacity;
+         for (int p = 0; p < count; p++) {
+             int mask = legal[base + p];
+             boolean rowComp = rowEmpty[rowBase + p] == 1, colComp = colEmpty[colBase + p] == 1;
+             double score = 1.0;
+             if (rowComp) score += 25.0;
+             if (colComp) score += 25.0;
+             if (rowComp && colComp) score += 25.0;
+             if (Integer.bitCount(mask) <= 2) score -= 5.0;
+             scores[base + p] = mask != 0 ? score : MoveEvaluator.NOT_A_MOVE;
+         }
+         lowestLegal(cell, values);
+     }
+ }
+
+ // StrategyCompletion: cell priority from the gaps left in its lines, minus 30% of the visibility risk
+ private void evaluateCompletion(double[] scores, byte[] values) {
+     for (int cell = 0; cell < size * size; cell++) {
+         int row = cell / size, col = cell % size;
+         int base = cell * capacity, rowBase = row * capacity, colBase = col * capacity;
+         for (int p = 0; p < count; p++) {
+             int mask = legal[base + p];
+             int emptyRow = rowEmpty[rowBase + p], emptyCol = colEmpty[colBase + p];
+             double score = 100.0 / (emptyRow + 1) + 100.0 / (emptyCol + 1);
+             if (emptyRow == 1) score += 50.0;
+             if (emptyCol == 1) score += 50.0;
+             if (emptyRow == 1 && emptyCol == 1) score += 100.0;
+             scores[base + p] = mask != 0 ? score : MoveEvaluator.NOT_A_MOVE;
+         }
+         lowestLegal(cell, values);
+
+         // Risk only arises when the move fills the last gap of a line, and then it depends on the value
+         for (int p = 0; p < count; p++) {
+             boolean rowComp = rowEmpty[rowBase + p] == 1, colComp = colEmpty[colBase + p] == 1;
+             int mask = legal[base + p];
+             if (!(rowComp || colComp) || mask == 0) continue;
+             double bestScore = MoveEvaluator.NOT_A_MOVE;
+             int bestValue = 0;
+             for (int v = 1; v <= size; v++) {
+                 if ((mask >>> (v - 1) & 1) == 0) continue;
+                 double risk = 0.0;
+                 if (rowComp && !visibility.isValid(rowLine[rowBase + p] | (long) v << (4 * col),
+                                                    clue(3, row, p), clue(1, row, p))) risk += 15.0;
+                 if (colComp && !visibility.isValid(colLine[colBase + p] | (long) v << (4 * row),
+                                                    clue(0, col, p), clue(2, col, p))) risk += 15.0;
+                 double score = scores[base + p] - risk * 0.3;
+                 if (score > bestScore) {
+                     bestScore = score;
+                     bestValue = v;
+                 }
+             }
+             scores[base + p] = bestScore;
+             values[base + p] = (byte) bestValue;
+         }
+     }
+ }
+
+ private void lowestLegal(int cell, byte[] values) {
+     int base = cell * capacity;
+     for (int p = 0; p < count; p++) {
+         int mask = legal[base + p];
+         values[base + p] = (byte) (mask != 0 ? Integer.numberOfTrailingZeros(mask) + 1 : 0);
+     }
+ }
+
+ // === SHARED PASSES ===
+ // Used-value masks of every line, then the legal mask of every cell
+ private void computeLegal() {
+     Arrays.fill(rowUsed, (short) 0);
+     Arrays.fill(colUsed, (short) 0);
+     for (int cell = 0; cell < size * size; cell++) {
+         int base = cell * capacity, rowBase = cell / size * capacity, colBase = cell % size * capacity;
+         for (int p = 0; p < count; p++) {
+             int v = cells[base + p];
+             int bit = (1 << v) >>> 1;  // 0 for an empty cell
+             rowUsed[rowBase + p] |= (short) bit;
+             colUsed[colBase + p] |= (short) bit;
+         }
+     }
+     for (int cell = 0; cell < size * size; cell++) {
+         int base = cell * capacity, rowBase = cell / size * capacity, colBase = cell % size * capacity;
+         for (int p = 0; p < count; p++) {
+             int free = ~(rowUsed[rowBase + p] | colUsed[colBase + p]) & fullMask;
+             legal[base + p] = (short) (cells[base + p] == 0 ? free : 0);
+         }
+     }
+ }
+
+ // Gap counts of every line, and every line in VisibilityTable's packed form
+ private void computeLines() {
+     Arrays.fill(rowEmpty, (byte) 0);
+     Arrays.fill(colEmpty, (byte) 0);
+     Arrays.fill(rowLine, 0L);
+     Arrays.fill(colLine, 0L);
+     for (int cell = 0; cell < size * size; cell++) {
+         int row = cell / size, col = cell % size;
+         int base = cell * capacity, rowBase = row * capacity, colBase = col * capacity;
+         for (int p = 0; p < count; p++) {
+             int v = cells[base + p];
+             int gap = v == 0 ? 1 : 0;
+             rowEmpty[rowBase + p] += (byte) gap;
+             colEmpty[colBase + p] += (byte) gap;
+             rowLine[rowBase + p] |= (long) v << (4 * col);
+             colLine[colBase + p] |= (long) v << (4 * row);
+         }
+     }
+ }
+}
@@ -0,0 +1,50 @@
+package game;
+
+//============================================================================
+//PUZZLE (clue set + its unique solution)
+//============================================================================
+/**
+ * An N x N Skyscrapers puzzle: four clue arrays (0 = no clue), the solution
+ * as N*N values in row-major order, and a difficulty grade 0-15 (the
+ * generator uses log2 of the solver's search nodes).
+ */
+class Puzzle {
+ final int size;
+ final int[] top, right, bottom, left;
+ final int[] solution;
+ final int difficulty;
+
+ Puzzle(int[] top, int[] right, int[] bottom, int[] left, int[] solution, int difficulty) {
+     this.size = top.length;
+     this.top = top;
+     this.right = right;
+     this.bottom = bottom;
+     this.left = left;
+     this.solution = solution;
+     this.difficulty = difficulty;
+ }
+
+ public int getSize() { return size; }
+ public int[] getTopClues() { return top; }
+ public int[] getRightClues() { return right; }
+ public int[] getBottomClues() { return bottom; }
+ public int[] getLeftClues() { return left; }
+ public int getDifficulty() { return difficulty; }
+ public int getSolution(int row, int col) { return solution[row * size + col]; }
+
+ /** Number of non-zero clues. */
+ public int getClueCount() {
+     int n = 0;
+     for (int i = 0; i < size; i++) {
+         if (top[i] != 0) n++;
+         if (right[i] != 0) n++;
+         if (bottom[i] != 0) n++;
+         if (left[i] != 0) n++;
+     }
+     return n;
+ }
+
+ public GameState newGame() {
+     return new GameState(top, right, bottom, left);
+ }
+}
@@ -0,0 +1,140 @@
+package game;
+
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+//============================================================================
+//PUZZLE GENERATOR (random Latin square -> full clues -> minimal clue set)
+//============================================================================
+/**
+ * Builds fresh puzzles with exactly one solution:
+ *  1. fill a random Latin square by randomized backtracking over row/column
+ *     used-value masks;
+ *  2. read off all 4N visibility clues (retrying the square if even the full
+ *     clue set is ambiguous);
+ *  3. visit the clues in random order and drop each one that the solver
+ *     shows is not needed, i.e. countSolutions(2) is still 1 without it.
+ *
+ * Generation is independent per puzzle, so generate(size, count, seed) runs
+ * on a parallel stream with a SplittableRandom split per puzzle; the result
+ * for a given seed does not depend on the number of threads.
+ */
+class PuzzleGenerator {
+ private static final int MAX_ATTEMPTS = 10_000;  // full clue sets are rarely unique beyond 6x6
+
+ private final int size;
+ private final int fullMask;
+
+ PuzzleGenerator(int size) {
+     TowersConstraintGraph.forSize(size);  // validates the size
+     this.size = size;
+     this.fullMask = (1 << size) - 1;
+ }
+
+ public int getSize() { return size; }
+
+ /** {@code count} puzzles, generated in parallel. */
+ public Puzzle[] generate(int count, long seed) {
+     SplittableRandom root = new SplittableRandom(seed);
+     SplittableRandom[] streams = new SplittableRandom[count];
+     for (int i = 0; i < count; i++) streams[i] = root.split();
+     return IntStream.range(0, count).parallel()
+             .mapToObj(i -> generate(streams[i]))
+             .toArray(Puzzle[]::new);
+ }
+
+ public Puzzle generate(SplittableRandom rnd) {
+     for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+         int[] solution = randomLatinSquare(rnd);
+         Puzzle puzzle = minimize(solution, rnd);
+         if (puzzle != null) return puzzle;
+     }
+     throw new IllegalStateException("No unique " + size + "x" + size + " puzzle after " + MAX_ATTEMPTS + " attempts");
+ }
+
+ // === LATIN SQUARE ===
+ /** Random Latin square as N*N values in row-major order. */
+ int[] randomLatinSquare(SplittableRandom rnd) {
+     int[] cells = new int[size * size];
+     int[] rowUsed = new int[size];
+     int[] colUsed = new int[size];
+     fill(cells, rowUsed, colUsed, 0, rnd);  // a Latin rectangle always extends, so this succeeds
+     return cells;
+ }
+
+ private boolean fill(int[] cells, int[] rowUsed, int[] colUsed, int cell, SplittableRandom rnd) {
+     if (cell == cells.length) return true;
+     int r = cell / size, c = cell % size;
+     int mask = fullMask & ~(rowUsed[r] | colUsed[c]);
+     while (mask != 0) {
+         int bit = randomBit(mask, rnd);
+         mask &= ~bit;
+         cells[cell] = Integer.numberOfTrailingZeros(bit) + 1;
+         rowUsed[r] |= bit;
+         colUsed[c] |= bit;
+         if (fill(cells, rowUsed, colUsed, cell + 1, rnd)) return true;
+         rowUsed[r] &= ~bit;
+         colUsed[c] &= ~bit;
+     }
+     cells[cell] = 0;
+     return false;
+ }
+
+ private static int randomBit(int mask, SplittableRandom rnd) {
+     int k = rnd.nextInt(Integer.bitCount(mask));
+     while (k-- > 0) mask &= mask - 1;
+     return mask & -mask;
+ }
+
+ // === CLUES ===
+ /** Minimal clue set for the solution, or null if the full clue set is not unique. */
+ private Puzzle minimize(int[] solution, SplittableRandom rnd) {
+     int[] top = new int[size], right = new int[size], bottom = new int[size], left = new int[size];
+     for (int i = 0; i < size; i++) {
+         top[i] = visible(solution, i, size);
+         bottom[i] = visible(solution, i + (size - 1) * size, -size);
+         left[i] = visible(solution, i * size, 1);
+         right[i] = visible(solution, i * size + size - 1, -1);
+     }
+     int[][] sides = {top, right, bottom, left};
+     if (!unique(sides)) return null;
+
+     // Clue slots as side * N + index, in random order
+     int[] order = new int[4 * size];
+     for (int i = 0; i < order.length; i++) order[i] = i;
+     for (int i = order.length - 1; i > 0; i--) {
+         int j = rnd.nextInt(i + 1);
+         int t = order[i]; order[i] = order[j]; order[j] = t;
+     }
+     for (int slot : order) {
+         int[] side = sides[slot / size];
+         int clue = side[slot % size];
+         side[slot % size] = 0;
+         if (!unique(sides)) side[slot % size] = clue;
+     }
+
+     SkyscraperSolver solver = new SkyscraperSolver(top, right, bottom, left);
+     solver.countSolutions(2);
+     return new Puzzle(top, right, bottom, left, solution, difficulty(solver.getNodeCount()));
+ }
+
+ private int visible(int[] cells, int start, int step) {
+     int count = 0, max = 0;
+     for (int i = 0, p = start; i < size; i++, p += step) {
+         if (cells[p] > max) {
+             max = cells[p];
+             count++;
+         }
+     }
+     return count;
+ }
+
+ private static boolean unique(int[][] sides) {
+     return new SkyscraperSolver(sides[0], sides[1], sides[2], sides[3]).countSolutions(2) == 1;
+ }
+
+ /** Difficulty grade 0-15: log2 of the search nodes needed to prove uniqueness. */
+ static int difficulty(long nodes) {
+     return Math.min(15, 63 - Long.numberOfLeadingZeros(Math.max(1, nodes)));
+ }
+}
@@ -0,0 +1,244 @@
+package game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+//============================================================================
+//PUZZLE LIBRARY (memory-mapped file of fixed-width puzzle records)
+//============================================================================
+/**
+ * On-disk puzzle corpus. The file is a header followed by 64-byte records
+ * sorted by size, then difficulty, so each (size, difficulty) bucket is one
+ * contiguous run and the header index (first record, count per bucket) gives
+ * O(1) access to the i-th puzzle of any bucket.
+ *
+ * Header (little-endian, HEADER_BYTES long):
+ *   int magic, short version, short record size, long record count,
+ *   then for size 0..9 and difficulty 0..15: long first record, long count.
+ *
+ * Record (RECORD_BYTES):
+ *   byte size, byte difficulty,
+ *   18 bytes of clues, 2 per byte (top, right, bottom, left, 9 slots each),
+ *   41 bytes of solution cells, 2 per byte in row-major order, rest zero.
+ *
+ * The records are mapped in 1 GB chunks, so opening only reads the header and
+ * nothing is parsed until a puzzle is asked for.
+ */
+class PuzzleLibrary implements AutoCloseable {
+ static final int MAGIC = 0x4C525754;  // "TWRL"
+ static final short VERSION = 1;
+ static final int RECORD_BYTES = 64;
+ static final int GRADES = 16;
+ private static final int SIZES = TowersConstraintGraph.MAX_SIZE + 1;
+ static final int HEADER_BYTES = 64 + SIZES * GRADES * 16;
+
+ private static final int CLUE_OFFSET = 2;
+ private static final int CLUE_SLOTS = TowersConstraintGraph.MAX_SIZE;
+ private static final int SOLUTION_OFFSET = CLUE_OFFSET + 4 * CLUE_SLOTS / 2;
+ private static final int RECORDS_PER_CHUNK = 1 << 24;
+
+ private final FileChannel channel;
+ private final long recordCount;
+ private final long[] bucketStart = new long[SIZES * GRADES];
+ private final long[] bucketCount = new long[SIZES * GRADES];
+ private final MappedByteBuffer[] chunks;
+
+ private PuzzleLibrary(FileChannel channel) throws IOException {
+     this.channel = channel;
+     ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+     if (header.getInt() != MAGIC) throw new IOException("Not a puzzle library");
+     if (header.getShort() != VERSION || header.getShort() != RECORD_BYTES) {
+         throw new IOException("Unsupported puzzle library version");
+     }
+     recordCount = header.getLong();
+     if (channel.size() < HEADER_BYTES + recordCount * RECORD_BYTES) throw new IOException("Puzzle library is truncated");
+     header.position(64);
+     for (int b = 0; b < bucketStart.length; b++) {
+         bucketStart[b] = header.getLong();
+         bucketCount[b] = header.getLong();
+     }
+
+     chunks = new MappedByteBuffer[(int) ((recordCount + RECORDS_PER_CHUNK - 1) / RECORDS_PER_CHUNK)];
+     for (int i = 0; i < chunks.length; i++) {
+         long first = (long) i * RECORDS_PER_CHUNK;
+         long records = Math.min(RECORDS_PER_CHUNK, recordCount - first);
+         chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + first * RECORD_BYTES, records * RECORD_BYTES);
+     }
+ }
+
+ static PuzzleLibrary open(Path file) throws IOException {
+     FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+     try {
+         return new PuzzleLibrary(channel);
+     } catch (IOException | RuntimeException e) {
+         channel.close();
+         throw e;
+     }
+ }
+
+ @Override
+ public void close() throws IOException {
+     channel.close();
+ }
+
+ private static int bucket(int size, int difficulty) {
+     return size * GRADES + difficulty;
+ }
+
+ // === QUERIES ===
+ public long size() { return recordCount; }
+
+ public long count(int size, int difficulty) {
+     if (size < 0 || size >= SIZES || difficulty < 0 || difficulty >= GRADES) return 0;
+     return bucketCount[bucket(size, difficulty)];
+ }
+
+ /** Number of puzzles of one board size, over all difficulties. */
+ public long count(int size) {
+     long n = 0;
+     for (int d = 0; d < GRADES; d++) n += count(size, d);
+     return n;
+ }
+
+ /** The {@code index}-th puzzle of a (size, difficulty) bucket. */
+ public Puzzle get(int size, int difficulty, long index) {
+     if (index < 0 || index >= count(size, difficulty)) {
+         throw new IndexOutOfBoundsException("No puzzle " + index + " for size " + size + ", difficulty " + difficulty);
+     }
+     return read(bucketStart[bucket(size, difficulty)] + index);
+ }
+
+ /** Uniformly random puzzle from a bucket, or null if it is empty. */
+ public Puzzle random(int size, int difficulty, SplittableRandom rnd) {
+     long n = count(size, difficulty);
+     return n == 0 ? null : read(bucketStart[bucket(size, difficulty)] + rnd.nextLong(n));
+ }
+
+ /** Uniformly random puzzle of a board size, or null if there is none. Buckets of one size are adjacent. */
+ public Puzzle random(int size, SplittableRandom rnd) {
+     long n = count(size);
+     if (n == 0) return null;
+     long first = Long.MAX_VALUE;
+     for (int d = 0; d < GRADES; d++) {
+         if (bucketCount[bucket(size, d)] > 0) first = Math.min(first, bucketStart[bucket(size, d)]);
+     }
+     return read(first + rnd.nextLong(n));
+ }
+
+ private Puzzle read(long record) {
+     MappedByteBuffer chunk = chunks[(int) (record / RECORDS_PER_CHUNK)];
+     int base = (int) (record % RECORDS_PER_CHUNK) * RECORD_BYTES;
+     int size = chunk.get(base);
+     int difficulty = chunk.get(base + 1);
+     int[][] clues = new int[4][size];
+     for (int side = 0; side < 4; side++) {
+         for (int i = 0; i < size; i++) clues[side][i] = nibble(chunk, base + CLUE_OFFSET, side * CLUE_SLOTS + i);
+     }
+     int[] solution = new int[size * size];
+     for (int i = 0; i < solution.length; i++) solution[i] = nibble(chunk, base + SOLUTION_OFFSET, i);
+     return new Puzzle(clues[0], clues[1], clues[2], clues[3], solution, difficulty);
+ }
+
+ private static int nibble(ByteBuffer buf, int offset, int i) {
+     int b = buf.get(offset + (i >> 1));
+     return (i & 1) == 0 ? b & 0xF : (b >> 4) & 0xF;
+ }
+
+ // === WRITING ===
+ /**
+  * Write puzzles as a new library file, replacing any existing one. Each
+  * puzzle is stored in its canonical orientation (see Symmetry), and
+  * rotations or reflections of a puzzle already written are dropped.
+  * Returns the number of puzzles written.
+  */
+ static int write(Path file, Puzzle[] puzzles) throws IOException {
+     Set<ByteBuffer> seen = new HashSet<>();
+     List<Puzzle> unique = new ArrayList<>();
+     for (Puzzle p : puzzles) {
+         Puzzle canonical = Symmetry.canonical(p);
+         byte[] record = encode(canonical);
+         record[1] = 0;  // the difficulty grade may differ between orientations
+         if (seen.add(ByteBuffer.wrap(record))) unique.add(canonical);
+     }
+     Puzzle[] sorted = unique.toArray(new Puzzle[0]);
+     Arrays.sort(sorted, Comparator.comparingInt(Puzzle::getSize).thenComparingInt(Puzzle::getDifficulty));
+
+     ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+     header.putInt(MAGIC).putShort(VERSION).putShort((short) RECORD_BYTES).putLong(sorted.length);
+     long[] start = new long[SIZES * GRADES];
+     long[] count = new long[SIZES * GRADES];
+     for (int i = 0; i < sorted.length; i++) {
+         int b = bucket(sorted[i].getSize(), sorted[i].getDifficulty());
+         if (count[b]++ == 0) start[b] = i;
+     }
+     header.position(64);
+     for (int b = 0; b < start.length; b++) header.putLong(start[b]).putLong(count[b]);
+     header.clear();
+
+     try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+             StandardOpenOption.TRUNCATE_EXISTING)) {
+         writeFully(out, header);
+         ByteBuffer block = ByteBuffer.allocate(RECORD_BYTES * 4096);
+         for (Puzzle p : sorted) {
+             block.put(encode(p));
+             if (!block.hasRemaining()) {
+                 block.flip();
+                 writeFully(out, block);
+                 block.clear();
+             }
+         }
+         block.flip();
+         writeFully(out, block);
+     }
+     return sorted.length;
+ }
+
+ private static byte[] encode(Puzzle p) {
+     int size = p.getSize();
+     if (size < 1 || size >= SIZES) throw new IllegalArgumentException("Unsupported puzzle size " + size);
+     byte[] record = new byte[RECORD_BYTES];
+     record[0] = (byte) size;
+     record[1] = (byte) p.getDifficulty();
+     int[][] clues = {p.top, p.right, p.bottom, p.left};
+     for (int side = 0; side < 4; side++) {
+         for (int i = 0; i < size; i++) putNibble(record, CLUE_OFFSET, side * CLUE_SLOTS + i, clues[side][i]);
+     }
+     for (int i = 0; i < size * size; i++) putNibble(record, SOLUTION_OFFSET, i, p.solution[i]);
+     return record;
+ }
+
+ private static void putNibble(byte[] record, int offset, int i, int value) {
+     record[offset + (i >> 1)] |= (byte) ((i & 1) == 0 ? value : value << 4);
+ }
+
+ private static void writeFully(FileChannel out, ByteBuffer buf) throws IOException {
+     while (buf.hasRemaining()) out.write(buf);
+ }
+
+ // ============================================================================
+ // MAIN: PuzzleLibrary <file> <size> <count> [seed]
+ // ============================================================================
+ public static void main(String[] args) throws IOException {
+     if (args.length < 3) {
+         System.err.println("Usage: PuzzleLibrary <file> <size> <count> [seed]");
+         return;
+     }
+     int size = Integer.parseInt(args[1]);
+     int count = Integer.parseInt(args[2]);
+     long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+     int written = write(Path.of(args[0]), new PuzzleGenerator(size).generate(count, seed));
+     System.out.println("Wrote " + written + " " + size + "x" + size + " puzzles to " + args[0]);
+ }
+}
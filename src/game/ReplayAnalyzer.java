@@ -0,0 +1,363 @@
+package game;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+//============================================================================
+//REPLAY ANALYZER (re-scores recorded games against every greedy strategy)
+//============================================================================
+/**
+ * Streams a GameRecordFile and replays every game through GameState. At each
+ * position where a move was played, it asks:
+ *  - a referee (StrategyMinimax, or StrategyTablebase in 4x4 endgames) for the
+ *    value of every legal move, in points plus lives / 10;
+ *  - each greedy strategy for the move it would have played;
+ *  - the exact solver whether a placement still leaves the clues solvable.
+ * A move's loss is the best referee value minus its own. A loss of at least
+ * the blunder threshold flags a blunder, counted per side for the moves
+ * actually played and per strategy for the moves it would have made. Root
+ * moves that fail low in the referee's alpha-beta only get an upper bound,
+ * so a flagged loss is never an overestimate at the referee's depth. A move
+ * rejected as a conflict is valued like any other: it is applied to a copy
+ * of the position, the referee searches the opponent's reply there, and the
+ * result is negated (plus the 10 lives it cost). Positions where the referee
+ * ran out of time before finishing depth 1 are only counted as unsearched,
+ * since its fallback greedy scores are not comparable with searched values.
+ * Deadlocks and moves rejected for a filled cell are not judged: neither
+ * changes the board, and the same position comes up again for the next move.
+ *
+ * The reader thread feeds a bounded queue drained by a fixed pool of
+ * workers, so memory stays flat however many games the file holds. Each
+ * worker keeps its own report; they are merged at the end.
+ */
+class ReplayAnalyzer {
+ static final Tournament.Player[] STRATEGIES = {
+     Tournament.Player.LIVES, Tournament.Player.COMPLETION, Tournament.Player.SCORE, Tournament.Player.MRV
+ };
+ static final double DEFAULT_BLUNDER_POINTS = 5.0;
+ static final long DEFAULT_REFEREE_NANOS = 1_000_000;
+ static final double CONFLICT_POINTS = 1.0;  // a rejected conflict costs 10 lives before the opponent replies
+ static final double DECISIVE_POINTS = 100.0;  // referee values are capped here, so a forced knockout counts as 100
+ private static final int QUEUE_PER_THREAD = 64;
+ private static final int WORST_BLUNDERS = 20;
+
+ private record Job(long index, GameRecord game) {}
+ private static final Job END = new Job(-1, null);
+
+ private final int threads;
+ private final Function<GameState, MoveEvaluator> referee;
+ private final double blunderPoints;
+
+ ReplayAnalyzer(int threads, Function<GameState, MoveEvaluator> referee, double blunderPoints) {
+     if (threads < 1) throw new IllegalArgumentException("Need at least one analysis thread");
+     this.threads = threads;
+     this.referee = referee;
+     this.blunderPoints = blunderPoints;
+ }
+
+ /** Referee searching each position for {@code budgetNanos}. */
+ static Function<GameState, MoveEvaluator> minimaxReferee(long budgetNanos) {
+     return state -> new StrategyMinimax(state, budgetNanos);
+ }
+
+ /** Exact referee for games on the tablebase's clues, minimax for the rest. */
+ static Function<GameState, MoveEvaluator> tablebaseReferee(Tablebase tablebase, long budgetNanos) {
+     return state -> tablebase.matches(state)
+         ? new StrategyTablebase(state, tablebase, budgetNanos)
+         : new StrategyMinimax(state, budgetNanos);
+ }
+
+ // === DRIVER ===
+ /** Analyze every remaining game of {@code reader}. */
+ public Report analyze(GameRecordFile.Reader reader) throws IOException, InterruptedException {
+     BlockingQueue<Job> queue = new ArrayBlockingQueue<>(threads * QUEUE_PER_THREAD);
+     ExecutorService pool = Executors.newFixedThreadPool(threads);
+     try {
+         List<Future<Report>> workers = new ArrayList<>();
+         for (int t = 0; t < threads; t++) workers.add(pool.submit(() -> work(queue)));
+
+         long index = 0;
+         for (GameRecord game; (game = reader.next()) != null; ) put(queue, new Job(index++, game), workers);
+         for (int t = 0; t < threads; t++) put(queue, END, workers);
+
+         Report total = new Report();
+         for (Future<Report> w : workers) total.merge(result(w));
+         return total;
+     } finally {
+         pool.shutdownNow();
+     }
+ }
+
+ // Blocks while the queue is full, but gives up if a worker has died so the reader cannot hang
+ private static void put(BlockingQueue<Job> queue, Job job, List<Future<Report>> workers) throws InterruptedException {
+     while (!queue.offer(job, 100, TimeUnit.MILLISECONDS)) {
+         for (Future<Report> w : workers) if (w.isDone()) result(w);
+     }
+ }
+
+ private static Report result(Future<Report> worker) throws InterruptedException {
+     try {
+         return worker.get();
+     } catch (ExecutionException e) {
+         if (e.getCause() instanceof RuntimeException re) throw re;
+         if (e.getCause() instanceof Error err) throw err;
+         throw new IllegalStateException(e.getCause());
+     }
+ }
+
+ private Report work(BlockingQueue<Job> queue) throws InterruptedException {
+     Report report = new Report();
+     for (Job job; (job = queue.take()) != END; ) analyzeGame(job, report);
+     return report;
+ }
+
+ // === ANALYSIS ===
+ private void analyzeGame(Job job, Report report) {
+     GameRecord record = job.game();
+     try {
+         record.replay();
+     } catch (IllegalStateException e) {
+         report.unreplayable++;
+         return;
+     }
+     int size = record.getSize();
+     GameState state = record.newGame();
+     MoveEvaluator judge = referee.apply(state);
+     MoveEvaluator[] strategies = new MoveEvaluator[STRATEGIES.length];
+     for (int k = 0; k < strategies.length; k++) strategies[k] = STRATEGIES[k].create(state, null);
+     double[] refScores = MoveEvaluator.newBuffer(size), scores = MoveEvaluator.newBuffer(size);
+     GameState afterConflict = null;  // position after a rejected conflict, with its own referee
+     MoveEvaluator replyJudge = null;
+
+     SkyscraperSolver solver = new SkyscraperSolver(record.getTopClues(), record.getRightClues(),
+                                                    record.getBottomClues(), record.getLeftClues());
+     int[] solution = null;
+     if (solver.countSolutions(2) == 1) {
+         int[][] grid = solver.getSolution();
+         solution = new int[size * size];
+         for (int r = 0; r < size; r++) System.arraycopy(grid[r], 0, solution, r * size, size);
+     }
+     boolean solvable = solution != null || solver.countSolutions(1) > 0;
+
+     for (int i = 0; i < record.getMoveCount(); i++) {
+         long move = record.getMove(i);
+         int outcome = MoveRecord.outcome(move);
+         if (outcome != MoveRecord.DEADLOCK && outcome != MoveRecord.REJECTED_FILLED) {
+             boolean isHuman = MoveRecord.isHuman(move);
+             state.setHumanTurn(isHuman);
+             judge.evaluateAll(refScores);
+             int best = argmax(refScores);
+             SideStats side = isHuman ? report.human : report.cpu;
+             int played = MoveRecord.cell(move) * size + MoveRecord.value(move) - 1;
+             double value = 0;
+             boolean searched = searched(judge);
+             if (best >= 0 && searched && outcome == MoveRecord.REJECTED_CONFLICT) {
+                 if (afterConflict == null) {
+                     afterConflict = state.copy();
+                     replyJudge = referee.apply(afterConflict);
+                 }
+                 afterConflict.resetTo(state);
+                 afterConflict.makeMove(played / size / size, (played / size) % size, played % size + 1, isHuman);
+                 value = -CONFLICT_POINTS;
+                 if ((isHuman ? afterConflict.getHumanLives() : afterConflict.getCpuLives()) <= 0) {
+                     value = -DECISIVE_POINTS;  // the penalty knocked the mover out
+                 } else {
+                     afterConflict.setHumanTurn(!isHuman);
+                     replyJudge.evaluateAll(scores);
+                     int reply = argmax(scores);
+                     searched = searched(replyJudge);
+                     if (reply >= 0) value -= capped(scores[reply]);
+                 }
+             }
+             if (best >= 0 && !searched) side.unsearched++;
+             if (best >= 0 && searched) {
+                 double bestValue = capped(refScores[best]);
+                 if (outcome == MoveRecord.PLACED) value = capped(refScores[played]);
+                 double loss = Math.max(0, bestValue - value);
+                 side.positions++;
+                 side.loss += loss;
+                 if (loss >= blunderPoints) {
+                     side.blunders++;
+                     report.offer(new Blunder(job.index(), i, isHuman, played, best, loss, size));
+                 }
+                 if (solvable && outcome == MoveRecord.PLACED && !keepsSolvable(state, solution, played)) side.offSolution++;
+
+                 for (int k = 0; k < strategies.length; k++) {
+                     strategies[k].evaluateAll(scores);
+                     int pick = argmax(scores);
+                     if (pick < 0) continue;
+                     double strategyLoss = Math.max(0, bestValue - capped(refScores[pick]));
+                     if (pick == played) side.agree[k]++;
+                     side.strategyLoss[k] += strategyLoss;
+                     if (strategyLoss >= blunderPoints) side.strategyBlunders[k]++;
+                     if (solvable && !keepsSolvable(state, solution, pick)) side.strategyOffSolution[k]++;
+                 }
+             }
+         }
+         if (solvable && outcome == MoveRecord.PLACED) {
+             solvable = keepsSolvable(state, solution, MoveRecord.cell(move) * size + MoveRecord.value(move) - 1);
+         }
+         record.step(state, i);
+     }
+     report.games++;
+ }
+
+ /** First highest entry, as selectBest picks it (without recording an explanation), or -1. */
+ private static int argmax(double[] scores) {
+     int best = -1;
+     double bestScore = MoveEvaluator.NOT_A_MOVE;
+     for (int i = 0; i < scores.length; i++) {
+         if (scores[i] > bestScore) {
+             bestScore = scores[i];
+             best = i;
+         }
+     }
+     return best;
+ }
+
+ // Greedy fallback scores (no ply finished in time) are not comparable with searched values
+ private static boolean searched(MoveEvaluator judge) {
+     if (judge instanceof StrategyMinimax m) return m.getCompletedDepth() >= 1;
+     if (judge instanceof StrategyTablebase t) return t.getCompletedDepth() >= 1;
+     return true;
+ }
+
+ private static double capped(double value) {
+     return Math.max(-DECISIVE_POINTS, Math.min(DECISIVE_POINTS, value));
+ }
+
+ /** Does placing move (buffer index) on a solvable position leave the clues solvable? */
+ private static boolean keepsSolvable(GameState state, int[] solution, int move) {
+     int size = state.getSize();
+     int cell = move / size, value = move % size + 1;
+     if (solution != null) return solution[cell] == value;
+     int[][] grid = new int[size][];
+     for (int r = 0; r < size; r++) grid[r] = state.getGrid()[r].clone();
+     grid[cell / size][cell % size] = value;
+     return new SkyscraperSolver(state.getTopClues(), state.getRightClues(), state.getBottomClues(),
+                                 state.getLeftClues(), grid).countSolutions(1) > 0;
+ }
+
+ //============================================================================
+ //REPORT
+ //============================================================================
+ /** One flagged move: game index in the file, move index in the game, played and best (buffer indices). */
+ record Blunder(long game, int move, boolean human, int played, int best, double loss, int size) {
+     String describe(int index) {
+         return String.format(Locale.ROOT, "%d at (%d,%d)", index % size + 1, index / size / size, (index / size) % size);
+     }
+ }
+
+ /** Per-side totals; the arrays are indexed like STRATEGIES. */
+ static final class SideStats {
+     long positions, blunders, offSolution;
+     long unsearched;  // positions skipped because the referee finished no ply in time
+     double loss;
+     final long[] agree = new long[STRATEGIES.length];
+     final long[] strategyBlunders = new long[STRATEGIES.length];
+     final long[] strategyOffSolution = new long[STRATEGIES.length];
+     final double[] strategyLoss = new double[STRATEGIES.length];
+
+     void merge(SideStats other) {
+         positions += other.positions;
+         blunders += other.blunders;
+         offSolution += other.offSolution;
+         unsearched += other.unsearched;
+         loss += other.loss;
+         for (int k = 0; k < STRATEGIES.length; k++) {
+             agree[k] += other.agree[k];
+             strategyBlunders[k] += other.strategyBlunders[k];
+             strategyOffSolution[k] += other.strategyOffSolution[k];
+             strategyLoss[k] += other.strategyLoss[k];
+         }
+     }
+ }
+
+ static final class Report {
+     long games, unreplayable;
+     final SideStats human = new SideStats(), cpu = new SideStats();
+     private final PriorityQueue<Blunder> worst = new PriorityQueue<>(Comparator.comparingDouble(Blunder::loss));
+
+     void offer(Blunder b) {
+         worst.add(b);
+         if (worst.size() > WORST_BLUNDERS) worst.poll();
+     }
+
+     void merge(Report other) {
+         games += other.games;
+         unreplayable += other.unreplayable;
+         human.merge(other.human);
+         cpu.merge(other.cpu);
+         for (Blunder b : other.worst) offer(b);
+     }
+
+     /** The biggest blunders seen, largest loss first. */
+     public List<Blunder> worstBlunders() {
+         List<Blunder> list = new ArrayList<>(worst);
+         list.sort(Comparator.comparingDouble(Blunder::loss).reversed());
+         return list;
+     }
+ }
+
+ //============================================================================
+ //COMMAND LINE
+ //============================================================================
+ private static void printSide(String name, SideStats s) {
+     if (s.positions == 0 && s.unsearched == 0) return;
+     double n = Math.max(1, s.positions);
+     System.out.printf(Locale.ROOT, "%s side, %d positions (%d more skipped: referee finished no ply in time)%n",
+         name, s.positions, s.unsearched);
+     System.out.printf(Locale.ROOT, "  %-12s %8s %10s %10s %12s%n", "", "agree", "avg loss", "blunders", "off-solution");
+     System.out.printf(Locale.ROOT, "  %-12s %8s %10.2f %9.2f%% %11.2f%%%n",
+         "played", "", s.loss / n, 100 * s.blunders / n, 100 * s.offSolution / n);
+     for (int k = 0; k < STRATEGIES.length; k++) {
+         System.out.printf(Locale.ROOT, "  %-12s %7.1f%% %10.2f %9.2f%% %11.2f%%%n",
+             STRATEGIES[k].id, 100 * s.agree[k] / n, s.strategyLoss[k] / n,
+             100 * s.strategyBlunders[k] / n, 100 * s.strategyOffSolution[k] / n);
+     }
+ }
+
+ public static void main(String[] args) throws IOException, InterruptedException {
+     if (args.length < 1) {
+         System.err.println("Usage: ReplayAnalyzer <record file> [threads] [referee ms] [blunder points] [tablebase file]");
+         return;
+     }
+     int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+     long budget = args.length > 2 ? (long) (Double.parseDouble(args[2]) * 1e6) : DEFAULT_REFEREE_NANOS;
+     double blunder = args.length > 3 ? Double.parseDouble(args[3]) : DEFAULT_BLUNDER_POINTS;
+     Function<GameState, MoveEvaluator> referee = args.length > 4
+         ? tablebaseReferee(Tablebase.load(Path.of(args[4])), budget)
+         : minimaxReferee(budget);
+
+     long start = System.nanoTime();
+     Report report;
+     try (GameRecordFile.Reader reader = GameRecordFile.Reader.open(Path.of(args[0]))) {
+         report = new ReplayAnalyzer(threads, referee, blunder).analyze(reader);
+     }
+     double seconds = (System.nanoTime() - start) / 1e9;
+
+     System.out.printf(Locale.ROOT, "%d games (%d unreplayable) in %.1f s on %d threads: %.0f games/s%n",
+         report.games, report.unreplayable, seconds, threads, report.games / seconds);
+     System.out.printf(Locale.ROOT, "Loss in points (lives count 1/10); blunder = loss >= %.1f%n", blunder);
+     printSide("Human", report.human);
+     printSide("CPU", report.cpu);
+     System.out.println("Worst blunders:");
+     for (Blunder b : report.worstBlunders()) {
+         System.out.printf(Locale.ROOT, "  game %d move %d (%s): played %s, best %s, loss %.1f%n",
+             b.game(), b.move(), b.human() ? "human" : "cpu", b.describe(b.played()), b.describe(b.best()), b.loss());
+     }
+ }
+}
@@ -0,0 +1,199 @@
+package game;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+//============================================================================
+//SESSION STORE (live, parked and spilled GameSessions)
+//============================================================================
+/**
+ * Holds GameSessions by id in three tiers, so a node can keep far more
+ * games open than it could as live objects:
+ *
+ *   live     a GameSession: GameState, constraint graph, CPU strategy
+ *            (kilobytes each)
+ *   parked   a byte[]: strategy, CPU budget and the GameRecordFile payload
+ *            (clues plus 4 bytes per move, about a hundred bytes)
+ *   spilled  a Long: offset of the same bytes in the snapshot file
+ *
+ * evictIdle() parks sessions unused for parkAfterNanos and spills parked
+ * ones unused for spillAfterNanos; the server calls it on a timer. get()
+ * rehydrates either form by replaying the record, so a session comes back
+ * exactly as it was left. Each transition builds the new form outside the
+ * map, so file I/O and replays never hold a map bin or pin a virtual
+ * thread's carrier, and then publishes it with replace(id, old, new). A
+ * session is therefore in exactly one tier at a time. A transition that
+ * loses a race is dropped: get() looks again, and a lost spill leaves its
+ * frame as dead space. Eviction can still park a session between get() and
+ * its use; withSession() covers that by retrying on the rehydrated session.
+ *
+ * Snapshot frame (little-endian): int length, int CRC32, long id, then the
+ * parked bytes. The file is a spill area for this process: it is truncated
+ * on open and only grows. Rehydrated frames become dead space until the
+ * store is reopened.
+ */
+class SessionStore implements AutoCloseable {
+ static final long DEFAULT_PARK_AFTER_NANOS = 10_000_000_000L;
+ static final long DEFAULT_SPILL_AFTER_NANOS = 300_000_000_000L;
+ private static final int PARKED_HEADER_BYTES = 1 + 8;  // strategy ordinal, CPU budget
+ private static final int FRAME_HEADER_BYTES = 4 + 4 + 8;
+
+ // Value is a GameSession, a Parked or a Long snapshot offset
+ private final ConcurrentHashMap<Long, Object> sessions = new ConcurrentHashMap<>();
+ private final FileChannel snapshot;
+ private final AtomicLong snapshotEnd = new AtomicLong();
+ private final long parkAfterNanos;
+ private final long spillAfterNanos;
+
+ /** A parked session: its bytes and when it was parked. */
+ private record Parked(byte[] bytes, long parkedAtNanos) {}
+
+ SessionStore(Path snapshotFile, long parkAfterNanos, long spillAfterNanos) throws IOException {
+     if (parkAfterNanos < 0 || spillAfterNanos < 0) throw new IllegalArgumentException("Idle times must be >= 0");
+     this.parkAfterNanos = parkAfterNanos;
+     this.spillAfterNanos = spillAfterNanos;
+     snapshot = FileChannel.open(snapshotFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                 StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+ }
+
+ public int size() { return sessions.size(); }
+
+ /** Session counts by tier: live, parked, spilled. */
+ public int[] tierCounts() {
+     int[] counts = new int[3];
+     for (Object v : sessions.values()) counts[v instanceof GameSession ? 0 : v instanceof Parked ? 1 : 2]++;
+     return counts;
+ }
+
+ // === ACCESS ===
+ void put(GameSession session) {
+     sessions.put(session.getId(), session);
+ }
+
+ /** The live session, rehydrated from the parked or spilled tier if needed; null if there is none. */
+ GameSession get(long id) {
+     while (true) {
+         Object v = sessions.get(id);
+         if (v instanceof GameSession s) return s;
+         if (v == null) return null;
+         GameSession s = rehydrate(id, v);
+         if (sessions.replace(id, v, s)) return s;
+         // Another get() or a spill got there first; use what it left
+     }
+ }
+
+ /**
+  * Apply {@code action} to the live session, rehydrating it if needed. If the
+  * session is parked between lookup and use, the action is retried on the
+  * rehydrated one, which was just used and so is not parked again at once.
+  * Returns null if there is no such session.
+  */
+ <T> T withSession(long id, Function<GameSession, T> action) {
+     while (true) {
+         GameSession session = get(id);
+         if (session == null) return null;
+         try {
+             return action.apply(session);
+         } catch (GameSession.ParkedException e) {
+             // Parked after get(); the next get() rehydrates it
+         }
+     }
+ }
+
+ boolean remove(long id) {
+     return sessions.remove(id) != null;
+ }
+
+ // === EVICTION ===
+ /** Park and spill sessions idle past their thresholds. Returns the number of sessions moved down a tier. */
+ int evictIdle() {
+     long now = System.nanoTime();
+     long parkCutoff = now - parkAfterNanos;
+     // A parked session was already idle for parkAfterNanos when it was parked
+     long spillCutoff = now - Math.max(0, spillAfterNanos - parkAfterNanos);
+     int moved = 0;
+     for (Long id : sessions.keySet()) {
+         Object before = sessions.get(id);
+         Object after = null;
+         if (before instanceof GameSession s) {
+             // Once parked, the session refuses every use, so nothing changes it before the replace
+             GameRecord record = s.parkIfIdle(parkCutoff);
+             if (record != null) after = new Parked(pack(s, record), now);
+         } else if (before instanceof Parked p && p.parkedAtNanos() - spillCutoff <= 0) {
+             after = spill(id, p.bytes());
+         }
+         if (after != null && sessions.replace(id, before, after)) moved++;
+     }
+     return moved;
+ }
+
+ private static byte[] pack(GameSession session, GameRecord record) {
+     byte[] game = GameRecordFile.encode(record);
+     ByteBuffer buf = ByteBuffer.allocate(PARKED_HEADER_BYTES + game.length).order(ByteOrder.LITTLE_ENDIAN);
+     buf.put((byte) session.getStrategy().ordinal()).putLong(session.getCpuBudgetNanos()).put(game);
+     return buf.array();
+ }
+
+ private Long spill(long id, byte[] bytes) {
+     ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_BYTES + bytes.length).order(ByteOrder.LITTLE_ENDIAN);
+     frame.putInt(bytes.length).putInt(0).putLong(id).put(bytes).flip();
+     frame.putInt(4, GameRecordFile.checksum(frame, 8, 8 + bytes.length));
+     long offset = snapshotEnd.getAndAdd(frame.remaining());
+     try {
+         while (frame.hasRemaining()) snapshot.write(frame, offset + frame.position());
+     } catch (IOException e) {
+         throw new UncheckedIOException("Cannot spill session " + id, e);
+     }
+     return offset;
+ }
+
+ // === REHYDRATION ===
+ private GameSession rehydrate(long id, Object value) {
+     try {
+         ByteBuffer buf = value instanceof Parked p ? ByteBuffer.wrap(p.bytes()) : readFrame(id, (Long) value);
+         buf.order(ByteOrder.LITTLE_ENDIAN);
+         Tournament.Player strategy = Tournament.Player.values()[buf.get()];
+         long budget = buf.getLong();
+         GameRecord record = GameRecordFile.decode(buf);
+         return new GameSession(id, record, strategy, budget, new SplittableRandom());
+     } catch (IOException e) {
+         throw new UncheckedIOException("Cannot rehydrate session " + id, e);
+     }
+ }
+
+ private ByteBuffer readFrame(long id, long offset) throws IOException {
+     ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+     readFully(header, offset);
+     int length = header.getInt(0), expected = header.getInt(4);
+     if (header.getLong(8) != id || length < PARKED_HEADER_BYTES || length > GameRecordFile.MAX_PAYLOAD_BYTES) {
+         throw new IOException("Corrupt session snapshot at offset " + offset);
+     }
+     ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_BYTES + length).order(ByteOrder.LITTLE_ENDIAN);
+     readFully(frame, offset);
+     if (GameRecordFile.checksum(frame, 8, 8 + length) != expected) {
+         throw new IOException("Checksum mismatch in session snapshot at offset " + offset);
+     }
+     return frame.position(FRAME_HEADER_BYTES);
+ }
+
+ private void readFully(ByteBuffer buf, long offset) throws IOException {
+     while (buf.hasRemaining()) {
+         if (snapshot.read(buf, offset + buf.position()) < 0) throw new IOException("Session snapshot ends early");
+     }
+     buf.flip();
+ }
+
+ @Override
+ public void close() throws IOException {
+     snapshot.close();
+ }
+}
@@ -0,0 +1,261 @@
+package game;
+
+//============================================================================
+//SKYSCRAPER SOLVER (exact, with solution counting)
+//============================================================================
+/**
+ * Backtracking solver over the game's own constraint model: Latin row/column
+ * constraints as used-value bitmasks and visibility clues through the shared
+ * VisibilityTable. Every row and column keeps per-position value masks; after
+ * each placement the touched row and column are narrowed to the values of
+ * clue-matching lines that still fit the board. Cells are picked
+ * most-constrained first.
+ *
+ * Clue value 0 means "no clue". Solution counting stops at a caller-given cap,
+ * so countSolutions(2) is a uniqueness check.
+ */
+class SkyscraperSolver {
+ private final int size;
+ private final int[] top, right, bottom, left;
+ private final VisibilityTable visibility;
+ private final int[] givens;      // per cell, 0 = open
+
+ private int limit;
+ private int solutions;
+ private long nodes;
+ private int[] firstSolution;
+
+ SkyscraperSolver(int[] top, int[] right, int[] bottom, int[] left) {
+     this(top, right, bottom, left, null);
+ }
+
+ /** Solve from a partially filled grid (0 = empty), e.g. a game in progress. */
+ SkyscraperSolver(int[] top, int[] right, int[] bottom, int[] left, int[][] grid) {
+     size = top.length;
+     if (right.length != size || bottom.length != size || left.length != size) {
+         throw new IllegalArgumentException("Clue arrays must all have length " + size);
+     }
+     this.top = top.clone();
+     this.right = right.clone();
+     this.bottom = bottom.clone();
+     this.left = left.clone();
+     visibility = VisibilityTable.forSize(size);
+
+     givens = new int[size * size];
+     if (grid != null) {
+         for (int r = 0; r < size; r++) System.arraycopy(grid[r], 0, givens, r * size, size);
+     }
+ }
+
+ SkyscraperSolver(GameState state) {
+     this(state.getTopClues(), state.getRightClues(), state.getBottomClues(), state.getLeftClues(), state.getGrid());
+ }
+
+ public int getSize() { return size; }
+ public long getNodeCount() { return nodes; }
+
+ /** Number of solutions, counting no further than {@code limit}. */
+ public int countSolutions(int limit) {
+     this.limit = limit;
+     solutions = 0;
+     nodes = 0;
+     firstSolution = null;
+     Board board = initialBoard();
+     if (board != null && limit > 0) search(board);
+     return solutions;
+ }
+
+ public boolean hasUniqueSolution() {
+     return countSolutions(2) == 1;
+ }
+
+ /** First solution found by the last count, as grid[row][col], or null if there was none. */
+ public int[][] getSolution() {
+     if (firstSolution == null) return null;
+     int[][] grid = new int[size][size];
+     for (int r = 0; r < size; r++) System.arraycopy(firstSolution, r * size, grid[r], 0, size);
+     return grid;
+ }
+
+ // === SEARCH ===
+ /** Board with the givens placed and every line narrowed, or null if the clues already rule it out. */
+ Board initialBoard() {
+     Board board = new Board(size);
+     for (int r = 0; r < size; r++) {
+         for (int i = 0; i < size; i++) {
+             board.rowDomains[r * size + i] = visibility.allowedMask(left[r], right[r], i);
+             board.colDomains[r * size + i] = visibility.allowedMask(top[r], bottom[r], i);
+         }
+     }
+     for (int cell = 0; cell < givens.length; cell++) {
+         int v = givens[cell];
+         if (v == 0) continue;
+         if ((board.candidates(cell) & (1 << (v - 1))) == 0) return null;
+         board.place(cell, v);
+     }
+     for (int i = 0; i < size; i++) {
+         if (!narrowRow(board, i) || !narrowColumn(board, i)) return null;
+     }
+     board.trailSize = 0;
+     return board;
+ }
+
+ private void search(Board board) {
+     nodes++;
+     int cell = pickCell(board);
+     if (cell == -2) return;
+     if (cell == -1) {
+         if (solutions++ == 0) firstSolution = board.cells.clone();
+         return;
+     }
+     int mask = board.candidates(cell);
+     while (mask != 0 && solutions < limit) {
+         int bit = mask & -mask;
+         mask &= mask - 1;
+         int mark = board.trailSize;
+         if (place(board, cell, Integer.numberOfTrailingZeros(bit) + 1)) search(board);
+         board.undo(cell, mark);
+     }
+ }
+
+ /**
+  * Most constrained open cell, -1 if the board is full, or -2 if some open
+  * cell has no candidates left (dead end).
+  */
+ int pickCell(Board board) {
+     int best = -1, bestCount = Integer.MAX_VALUE;
+     for (int cell = 0; cell < board.cells.length; cell++) {
+         if (board.cells[cell] != 0) continue;
+         int count = Integer.bitCount(board.candidates(cell));
+         if (count < bestCount) {
+             if (count == 0) return -2;
+             best = cell;
+             bestCount = count;
+             if (count == 1) break;
+         }
+     }
+     return best;
+ }
+
+ /** Place a value and narrow its row and column; false on contradiction. Undo with Board.undo. */
+ boolean place(Board board, int cell, int value) {
+     board.place(cell, value);
+     return narrowRow(board, cell / size) && narrowColumn(board, cell % size);
+ }
+
+ private boolean narrowRow(Board board, int row) {
+     if (left[row] == 0 && right[row] == 0) return true;  // no clues: the used-value masks already cover it
+     int[] dom = board.lineScratch;
+     for (int c = 0; c < size; c++) dom[c] = board.cellDomain(row * size + c);
+     if (!visibility.filterDomains(dom, board.unionScratch, left[row], right[row])) return false;
+     for (int c = 0; c < size; c++) board.setRowDomain(row * size + c, dom[c]);
+     return true;
+ }
+
+ private boolean narrowColumn(Board board, int col) {
+     if (top[col] == 0 && bottom[col] == 0) return true;  // no clues: the used-value masks already cover it
+     int[] dom = board.lineScratch;
+     for (int r = 0; r < size; r++) dom[r] = board.cellDomain(r * size + col);
+     if (!visibility.filterDomains(dom, board.unionScratch, top[col], bottom[col])) return false;
+     for (int r = 0; r < size; r++) board.setColDomain(col * size + r, dom[r]);
+     return true;
+ }
+
+ //============================================================================
+ //BOARD (mutable search position)
+ //============================================================================
+ /**
+  * Cell values, row/column used-value masks and per-line domains, with a
+  * trail so a placement and its narrowing can be undone.
+  */
+ static class Board {
+     final int size;
+     final int[] cells;
+     final int[] rowUsed, colUsed;
+     final int[] rowDomains;  // [row * N + col]: values the row's clues still allow at col
+     final int[] colDomains;  // [col * N + row]: same for the column
+     int[] trail;             // (slot, old mask) pairs; slot < 0 marks a column domain
+     int trailSize;
+     final int[] lineScratch, unionScratch;
+
+     Board(int size) {
+         this.size = size;
+         cells = new int[size * size];
+         rowUsed = new int[size];
+         colUsed = new int[size];
+         rowDomains = new int[size * size];
+         colDomains = new int[size * size];
+         trail = new int[4 * size * (size * size + 1)];
+         lineScratch = new int[size];
+         unionScratch = new int[size];
+     }
+
+     private Board(Board other) {
+         size = other.size;
+         cells = other.cells.clone();
+         rowUsed = other.rowUsed.clone();
+         colUsed = other.colUsed.clone();
+         rowDomains = other.rowDomains.clone();
+         colDomains = other.colDomains.clone();
+         trail = new int[other.trail.length];
+         lineScratch = new int[size];
+         unionScratch = new int[size];
+     }
+
+     /** Independent copy of the position (the trail is not shared). */
+     Board copy() {
+         return new Board(this);
+     }
+
+     /** Values still possible at an open cell. */
+     int candidates(int cell) {
+         int r = cell / size, c = cell % size;
+         return rowDomains[cell] & colDomains[c * size + r] & ~(rowUsed[r] | colUsed[c]);
+     }
+
+     /** Domain of any cell: its own value if filled, else its candidates. */
+     int cellDomain(int cell) {
+         return cells[cell] != 0 ? 1 << (cells[cell] - 1) : candidates(cell);
+     }
+
+     void place(int cell, int value) {
+         int r = cell / size, c = cell % size;
+         cells[cell] = value;
+         rowUsed[r] |= 1 << (value - 1);
+         colUsed[c] |= 1 << (value - 1);
+     }
+
+     void setRowDomain(int slot, int mask) {
+         if (rowDomains[slot] == mask) return;
+         push(slot, rowDomains[slot]);
+         rowDomains[slot] = mask;
+     }
+
+     void setColDomain(int slot, int mask) {
+         if (colDomains[slot] == mask) return;
+         push(-slot - 1, colDomains[slot]);
+         colDomains[slot] = mask;
+     }
+
+     private void push(int slot, int old) {
+         if (trailSize == trail.length) trail = java.util.Arrays.copyOf(trail, trail.length * 2);
+         trail[trailSize++] = slot;
+         trail[trailSize++] = old;
+     }
+
+     /** Clear the cell and roll domains back to a trail mark taken before placing it. */
+     void undo(int cell, int mark) {
+         while (trailSize > mark) {
+             int old = trail[--trailSize];
+             int slot = trail[--trailSize];
+             if (slot >= 0) rowDomains[slot] = old;
+             else colDomains[-slot - 1] = old;
+         }
+         int r = cell / size, c = cell % size;
+         int value = cells[cell];
+         cells[cell] = 0;
+         rowUsed[r] &= ~(1 << (value - 1));
+         colUsed[c] &= ~(1 << (value - 1));
+     }
+ }
+}
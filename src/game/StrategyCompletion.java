@@ -2,7 +2,7 @@ package game;
 
 import java.util.*;
 
-public class StrategyCompletion {
+public class StrategyCompletion implements MoveEvaluator {
  private GameState state;
 
  public StrategyCompletion(GameState state) {
@@ -39,69 +39,67 @@ public class StrategyCompletion {
 // }
  
  
- public int[] findBestMove() {
+ public GameState getState() { return state; }
+
+ public void evaluateAll(double[] scores) {
 	    int size = state.getSize();
-	    double bestScore = -Double.MAX_VALUE;
-	    int bestRow = -1, bestCol = -1, bestValue = -1;
-	    String bestExplanation = "";
+	    Arrays.fill(scores, NOT_A_MOVE);
 
 	    // Check all cells
 	    for (int r = 0; r < size; r++) {
 	        for (int c = 0; c < size; c++) {
-	            if (state.getGrid()[r][c] == 0) {
-	                CellEvaluation eval = evaluateCompletion(r, c);
-	                
-	                // ⭐ NEW: Try ALL legal values for this cell, pick best one
-	                for (int v = 1; v <= size; v++) {
-	                    if (!state.getGraph().hasConflict(state.getGrid(), r, c, v)) {
-	                        // Calculate visibility risk for this specific value
-	                        double visibilityRisk = calculateVisibilityRisk(r, c, v);
-	                        
-	                        // ⭐ GREEDY FLAW: Still prioritize completion, but subtract risk
-	                        // (Should avoid risk entirely, but greedy = locally optimal)
-	                        double adjustedScore = eval.score - (visibilityRisk * 0.3);  // Only 30% penalty
-	                        
-	                        if (adjustedScore > bestScore) {
-	                            bestScore = adjustedScore;
-	                            bestRow = r;
-	                            bestCol = c;
-	                            bestValue = v;
-	                            
-	                            // Update explanation with risk info
-	                            bestExplanation = String.format(
-	                                "【COMPLETION GREEDY】\n" +
-	                                "════════════════════════════\n" +
-	                                "📍 Cell: (%d,%d) = %d\n" +
-	                                "📏 Row empty: %d → priority %.1f\n" +
-	                                "📏 Col empty: %d → priority %.1f\n" +
-	                                "🎯 Completion bonus: %.1f\n" +
-	                                "⚠️  Visibility risk: %.1f\n" +
-	                                "📈 ADJUSTED SCORE: %.1f\n" +
-	                                "════════════════════════════\n" +
-	                                "STRATEGY: Rush to complete!\n" +
-	                                "%s",
-	                                r, c, v,
-	                                state.countEmptyInRow(r), 100.0 / (state.countEmptyInRow(r) + 1),
-	                                state.countEmptyInColumn(c), 100.0 / (state.countEmptyInColumn(c) + 1),
-	                                eval.score - adjustedScore + visibilityRisk * 0.3,
-	                                visibilityRisk,
-	                                adjustedScore,
-	                                visibilityRisk > 0 ? "⚠️ HIGH PENALTY RISK!" : "✓ Safe move"
-	                            );
-	                        }
-	                    }
+	            int legal = state.legalMask(r, c);
+	            if (legal == 0) continue;
+	            double cellScore = evaluateCompletion(r, c);
+
+	            // ⭐ NEW: Try ALL legal values for this cell, pick best one
+	            for (int v = 1; v <= size; v++) {
+	                if ((legal & (1 << (v - 1))) != 0) {
+	                    // Calculate visibility risk for this specific value
+	                    double visibilityRisk = calculateVisibilityRisk(r, c, v);
+
+	                    // ⭐ GREEDY FLAW: Still prioritize completion, but subtract risk
+	                    // (Should avoid risk entirely, but greedy = locally optimal)
+	                    scores[MoveEvaluator.index(size, r, c, v)] = cellScore - (visibilityRisk * 0.3);  // Only 30% penalty
 	                }
 	            }
 	        }
 	    }
+	}
 
-	    if (bestRow == -1 || bestValue == -1) return null;
+ // Explanation terms: {row empty, col empty, completion score, visibility risk}
+ public MoveExplanation explain(int row, int col, int value, double score) {
+     return new MoveExplanation(this::describe, row, col, value, score,
+         state.countEmptyInRow(row), state.countEmptyInColumn(col),
+         evaluateCompletion(row, col), calculateVisibilityRisk(row, col, value));
+ }
 
-	    state.setCpuReasoningExplanation(bestExplanation);
-	    return new int[]{bestRow, bestCol, bestValue};
-	}
+ private String describe(MoveExplanation e) {
+     int emptyRow = (int) e.terms[0], emptyCol = (int) e.terms[1];
+     double cellScore = e.terms[2], visibilityRisk = e.terms[3];
+     return String.format(
+         "【COMPLETION GREEDY】\n" +
+         "════════════════════════════\n" +
+         "📍 Cell: (%d,%d) = %d\n" +
+         "📏 Row empty: %d → priority %.1f\n" +
+         "📏 Col empty: %d → priority %.1f\n" +
+         "🎯 Completion bonus: %.1f\n" +
+         "⚠️  Visibility risk: %.1f\n" +
+         "📈 ADJUSTED SCORE: %.1f\n" +
+         "════════════════════════════\n" +
+         "STRATEGY: Rush to complete!\n" +
+         "%s",
+         e.row, e.col, e.value,
+         emptyRow, 100.0 / (emptyRow + 1),
+         emptyCol, 100.0 / (emptyCol + 1),
+         cellScore - e.score + visibilityRisk * 0.3,
+         visibilityRisk,
+         e.score,
+         visibilityRisk > 0 ? "⚠️ HIGH PENALTY RISK!" : "✓ Safe move"
+     );
+ }
 
- private CellEvaluation evaluateCompletion(int row, int col) {
+ private double evaluateCompletion(int row, int col) {
      int emptyRow = state.countEmptyInRow(row);
      int emptyCol = state.countEmptyInColumn(col);
 
@@ -112,22 +110,7 @@ public class StrategyCompletion {
      if (emptyCol == 1) bonus += 50.0;
      if (emptyRow == 1 && emptyCol == 1) bonus += 100.0;
 
-     double finalScore = rowPriority + colPriority + bonus;
-
-     String explanation = String.format(
-         "【COMPLETION GREEDY】\n" +
-         "════════════════════════════\n" +
-         "📍 Cell: (%d,%d)\n" +
-         "📏 Row empty: %d → priority %.1f\n" +
-         "📏 Col empty: %d → priority %.1f\n" +
-         "🎯 Completion bonus: %.1f\n" +
-         "📈 TOTAL SCORE: %.1f\n" +
-         "════════════════════════════\n" +
-         "STRATEGY: Rush to finish rows & columns!",
-         row, col, emptyRow, rowPriority, emptyCol, colPriority, bonus, finalScore
-     );
-
-     return new CellEvaluation(row, col, finalScore, explanation);
+     return rowPriority + colPriority + bonus;
  }
  
  /**
@@ -137,38 +120,16 @@ public class StrategyCompletion {
  private double calculateVisibilityRisk(int row, int col, int value) {
      double risk = 0.0;
      
-     // Simulate placing the value
-     int[][] grid = state.getGrid();
-     int originalValue = grid[row][col];
-     grid[row][col] = value;
-     
-     // Check if row would be complete
-     boolean rowComplete = state.isRowComplete(row);
-     if (rowComplete) {
-         // Will this violate visibility clues?
-         if (!state.validateRowVisibility(row)) {
-             risk += 15.0;  // -15 lives penalty risk!
-         }
+     // Completing the row with the wrong visibility costs -15 lives
+     if (state.wouldViolateRow(row, col, value)) {
+         risk += 15.0;
      }
      
-     // Check if column would be complete
-     boolean colComplete = state.isColumnComplete(col);
-     if (colComplete) {
-         // Will this violate visibility clues?
-         if (!state.validateColumnVisibility(col)) {
-             risk += 15.0;  // -15 lives penalty risk!
-         }
+     // Same for the column
+     if (state.wouldViolateColumn(row, col, value)) {
+         risk += 15.0;
      }
      
-     // Restore original value
-     grid[row][col] = originalValue;
-     
      return risk;
  }
-
-
- public double evaluateCell(int row, int col) {
-     if (state.getGrid()[row][col] != 0) return 0.0;
-     return evaluateCompletion(row, col).score;
- }
 }
\ No newline at end of file
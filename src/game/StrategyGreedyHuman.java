@@ -0,0 +1,80 @@
+package game;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+//============================================================================
+//GREEDY HUMAN STRATEGY (stand-in for a casual human player)
+//============================================================================
+/**
+ * Plays the way a casual human tends to: take the move worth the most points
+ * right now, as far as one can see by checking the clues of the line being
+ * finished (+15 per valid completion, -15 per visibility violation, +1 for a
+ * plain placement). Among equal moves it fills the cell with the fewest
+ * options first, and a little noise breaks the remaining ties so repeated
+ * games on one puzzle do not all play out the same way. No lookahead.
+ */
+public class StrategyGreedyHuman implements MoveEvaluator {
+ private static final double NOISE = 0.01;
+
+ private final GameState state;
+ private final SplittableRandom random;
+
+ public StrategyGreedyHuman(GameState state) {
+     this(state, new SplittableRandom());
+ }
+
+ public StrategyGreedyHuman(GameState state, SplittableRandom random) {
+     this.state = state;
+     this.random = random;
+ }
+
+ public GameState getState() { return state; }
+
+ public void evaluateAll(double[] scores) {
+     int size = state.getSize();
+     Arrays.fill(scores, NOT_A_MOVE);
+     for (int r = 0; r < size; r++) {
+         for (int c = 0; c < size; c++) {
+             int legal = state.legalMask(r, c);
+             if (legal == 0) continue;
+             double forced = 1.0 / Integer.bitCount(legal);
+             while (legal != 0) {
+                 int v = Integer.numberOfTrailingZeros(legal) + 1;
+                 legal &= legal - 1;
+                 scores[MoveEvaluator.index(size, r, c, v)] =
+                     immediateGain(r, c, v) + forced + random.nextDouble() * NOISE;
+             }
+         }
+     }
+ }
+
+ // Explanation terms: {immediate gain, legal options}
+ public MoveExplanation explain(int row, int col, int value, double score) {
+     return new MoveExplanation(this::describe, row, col, value, score,
+         immediateGain(row, col, value), state.countLegalValues(row, col));
+ }
+
+ /** Points the move would earn (or lives it would cost, as negative points) on the spot. */
+ private int immediateGain(int row, int col, int value) {
+     boolean rowComp = state.countEmptyInRow(row) == 1;
+     boolean colComp = state.countEmptyInColumn(col) == 1;
+     if (!rowComp && !colComp) return 1;
+     int gain = 0;
+     if (rowComp) gain += state.wouldViolateRow(row, col, value) ? -15 : 15;
+     if (colComp) gain += state.wouldViolateColumn(row, col, value) ? -15 : 15;
+     return gain;
+ }
+
+ private String describe(MoveExplanation e) {
+     return String.format(
+         "【GREEDY HUMAN】\n" +
+         "════════════════════════════\n" +
+         "📍 Move: %d at (%d,%d)\n" +
+         "💰 Immediate gain: %+d\n" +
+         "🎯 Legal options: %d\n" +
+         "════════════════════════════\n" +
+         "STRATEGY: Grab what's on the board now!",
+         e.value, e.row, e.col, (int) e.terms[0], (int) e.terms[1]);
+ }
+}
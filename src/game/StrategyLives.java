@@ -4,59 +4,62 @@ import java.util.*;
 //============================================================================
 //SURVIVAL GREEDY STRATEGY (Lives-Based) - Person 1
 //============================================================================
-public class StrategyLives {
+public class StrategyLives implements MoveEvaluator {
  private GameState state;
 
  public StrategyLives(GameState state) {
      this.state = state;
  }
 
- public int[] findBestMove() {
-     int size = state.getSize();
-     double bestScore = -Double.MAX_VALUE;
-     int bestRow = -1, bestCol = -1;
-     String bestExplanation = "";
+ public GameState getState() { return state; }
 
-     int cpuLives = state.getCpuLives();
-     double emergencyMultiplier = calculateEmergencyMultiplier(cpuLives);
-     String status = getEmergencyStatus(cpuLives);
+ // One score per cell, placed on the value findBestMove would play (its lowest legal value)
+ public void evaluateAll(double[] scores) {
+     int size = state.getSize();
+     Arrays.fill(scores, NOT_A_MOVE);
+     double emergencyMultiplier = calculateEmergencyMultiplier(state.getCpuLives());
 
      for (int r = 0; r < size; r++) {
          for (int c = 0; c < size; c++) {
-             if (state.getGrid()[r][c] == 0) {
-                 CellEvaluation eval = evaluateSurvival(r, c, emergencyMultiplier, status);
-                 if (eval.score > bestScore) {
-                     bestScore = eval.score;
-                     bestRow = r;
-                     bestCol = c;
-                     bestExplanation = eval.explanation;
-                 }
+             int value = state.findLegalValue(r, c);
+             if (value != -1) {
+                 scores[MoveEvaluator.index(size, r, c, value)] = evaluateSurvival(r, c, emergencyMultiplier);
              }
          }
      }
+ }
 
-     if (bestRow == -1) return null;
-
-     int bestValue = findLegalValue(bestRow, bestCol);
-     if (bestValue == -1) return null;
-
-     state.setCpuReasoningExplanation(bestExplanation);
-     return new int[]{bestRow, bestCol, bestValue};
+ // Explanation terms: {cpu lives, legal options, emergency multiplier}
+ public MoveExplanation explain(int row, int col, int value, double score) {
+     int cpuLives = state.getCpuLives();
+     return new MoveExplanation(this::describe, row, col, value, score,
+         cpuLives, state.countLegalValues(row, col), calculateEmergencyMultiplier(cpuLives));
  }
 
- private CellEvaluation evaluateSurvival(int row, int col, double emergencyMultiplier, String status) {
-     int legalCount = countLegalValues(row, col);
+ private double evaluateSurvival(int row, int col, double emergencyMultiplier) {
+     int legalCount = state.countLegalValues(row, col);
 
      if (legalCount == 0) {
-         return new CellEvaluation(row, col, -1000.0,
-             "❌ DEATH TRAP: No legal values → instant -10 lives penalty!");
+         return -1000.0;
      }
 
      double baseSafety = legalCount * 25.0;
      double livesFactor = (100.0 - state.getCpuLives()) / 20.0;
-     double finalScore = (baseSafety * emergencyMultiplier) + livesFactor;
+     return (baseSafety * emergencyMultiplier) + livesFactor;
+ }
+
+ private String describe(MoveExplanation e) {
+     int cpuLives = (int) e.terms[0];
+     int legalCount = (int) e.terms[1];
+     double emergencyMultiplier = e.terms[2];
+
+     if (legalCount == 0) {
+         return "❌ DEATH TRAP: No legal values → instant -10 lives penalty!";
+     }
 
-     String explanation = String.format(
+     double baseSafety = legalCount * 25.0;
+     double livesFactor = (100.0 - cpuLives) / 20.0;
+     return String.format(
          "【SURVIVAL GREEDY - %s】\n" +
          "════════════════════════════\n" +
          "📍 Cell: (%d,%d)\n" +
@@ -68,11 +71,9 @@ public class StrategyLives {
          "📈 FINAL SCORE: %.1f\n" +
          "════════════════════════════\n" +
          "STRATEGY: Maximize survival – avoid penalties at all costs!",
-         status, row, col, state.getCpuLives(), legalCount,
-         baseSafety, emergencyMultiplier, livesFactor, finalScore
+         getEmergencyStatus(cpuLives), e.row, e.col, cpuLives, legalCount,
+         baseSafety, emergencyMultiplier, livesFactor, e.score
      );
-
-     return new CellEvaluation(row, col, finalScore, explanation);
  }
 
  private double calculateEmergencyMultiplier(int lives) {
@@ -90,29 +91,4 @@ public class StrategyLives {
      if (lives <= 75) return "ALERT 🔶";
      return "SAFE ✅";
  }
-
- private int countLegalValues(int row, int col) {
-     int count = 0;
-     for (int v = 1; v <= state.getSize(); v++) {
-         if (!state.getGraph().hasConflict(state.getGrid(), row, col, v)) {
-             count++;
-         }
-     }
-     return count;
- }
-
- private int findLegalValue(int row, int col) {
-     for (int v = 1; v <= state.getSize(); v++) {
-         if (!state.getGraph().hasConflict(state.getGrid(), row, col, v)) {
-             return v;
-         }
-     }
-     return -1;
- }
-
- // Heat map support
- public double evaluateCell(int row, int col) {
-     if (state.getGrid()[row][col] != 0) return 0.0;
-     return evaluateSurvival(row, col, calculateEmergencyMultiplier(state.getCpuLives()), "").score;
- }
 }
\ No newline at end of file
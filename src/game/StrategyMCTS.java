@@ -0,0 +1,307 @@
+package game;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+//============================================================================
+//MCTS STRATEGY (tree-parallel Monte Carlo tree search)
+//============================================================================
+/**
+ * Monte Carlo tree search for boards too big to search exhaustively. Worker
+ * virtual threads share one tree; each repeatedly
+ *  1. walks down by UCT on its own copy of the game, adding a virtual loss
+ *     (a visit with no reward yet) to every node it passes so the other
+ *     workers spread out,
+ *  2. expands the node it stops at into all legal moves, ordered by the
+ *     rollout policy's score; a node where the game is over (a side is out
+ *     of lives) is never expanded, and its result is backed up as it stands,
+ *  3. plays the game out with the policy (StrategyLives or StrategyMRV),
+ *     mixing in moves drawn uniformly from all Latin-legal ones,
+ *  4. adds the reward (1 win, 0.5 draw, 0 loss, as getWinner() decides)
+ *     to the nodes on its path, seen from the side that moved into each.
+ *
+ * More cores or a longer budget means more playouts; the move played is the
+ * most visited one. Each worker draws from its own split of the random
+ * generator passed in, so a single-threaded search is reproducible.
+ */
+public class StrategyMCTS implements MoveEvaluator {
+    static final long DEFAULT_BUDGET_NANOS = 100_000_000;
+    private static final double EXPLORATION = 1.0;
+    private static final double RANDOM_MOVE_RATE = 0.2;
+    private static final int PROGRESS_INTERVAL = 1024;
+
+    private final GameState state;
+    private final long budgetNanos;
+    private final int threads;
+    private final boolean mrvPolicy;
+    private final SplittableRandom seeds;
+
+    // Root statistics of the last search, by buffer index
+    private int[] rootVisits;
+    private double[] rootWins;
+    private int playouts;
+
+    public StrategyMCTS(GameState state) {
+        this(state, DEFAULT_BUDGET_NANOS, Runtime.getRuntime().availableProcessors(), false, new SplittableRandom());
+    }
+
+    public StrategyMCTS(GameState state, long budgetNanos, int threads, boolean mrvPolicy, SplittableRandom random) {
+        if (threads < 1) throw new IllegalArgumentException("Need at least one search thread");
+        this.state = state;
+        this.budgetNanos = budgetNanos;
+        this.threads = threads;
+        this.mrvPolicy = mrvPolicy;
+        this.seeds = random;
+    }
+
+    public GameState getState() { return state; }
+    public int getPlayoutCount() { return playouts; }
+
+    //============================================================================
+    //TREE
+    //============================================================================
+    private static final class Node {
+        final int move;              // buffer index of the move into this node, -1 at the root
+        final boolean moverHuman;    // side that played it
+        volatile Node[] children;    // null until expanded
+        volatile int visits;         // real visits plus in-flight virtual losses
+        volatile double wins;        // rewards for moverHuman; written under the node's lock
+
+        Node(int move, boolean moverHuman) {
+            this.move = move;
+            this.moverHuman = moverHuman;
+        }
+    }
+
+    /**
+     * Each move's share of the root visits, in percent; moves the search never
+     * tried score 0. The most visited move wins. If the budget ran out before
+     * the first playout, moves are ranked by the policy alone (scores <= 0).
+     */
+    public void evaluateAll(double[] scores) {
+        evaluateAll(scores, Deadline.after(budgetNanos));
+    }
+
+    /** Searches until the deadline; the current most visited move is reported every PROGRESS_INTERVAL playouts. */
+    public void evaluateAll(double[] scores, Deadline deadline) {
+        Arrays.fill(scores, NOT_A_MOVE);
+        Node root = new Node(-1, !state.isHumanTurn());
+
+        Worker first = new Worker(root, seeds.split());
+        root.children = first.expand(state.isHumanTurn());  // in policy order, so a search with no playouts still has a move
+
+        List<Future<?>> workers = new ArrayList<>();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            workers.add(pool.submit(() -> first.run(deadline, true)));
+            for (int t = 1; t < threads; t++) {
+                Worker worker = new Worker(root, seeds.split());
+                workers.add(pool.submit(() -> worker.run(deadline, false)));
+            }
+        }
+        for (Future<?> worker : workers) {
+            try {
+                worker.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("MCTS worker failed", e.getCause());
+            }
+        }
+
+        rootVisits = new int[scores.length];
+        rootWins = new double[scores.length];
+        playouts = 0;
+        Node[] children = root.children;
+        for (Node child : children) playouts += child.visits;
+        for (int i = 0; i < children.length; i++) {
+            Node child = children[i];
+            rootVisits[child.move] = child.visits;
+            rootWins[child.move] = child.wins;
+            scores[child.move] = playouts == 0 ? -i : 100.0 * child.visits / playouts;
+        }
+    }
+
+    //============================================================================
+    //WORKER (one virtual thread, own copy of the game)
+    //============================================================================
+    private final class Worker {
+        private final Node root;
+        private final SplittableRandom rnd;
+        private final GameState game = state.copy();
+        private final MoveEvaluator policy = mrvPolicy ? new StrategyMRV(game) : new StrategyLives(game);
+        private final double[] buffer = MoveEvaluator.newBuffer(state.getSize());
+        private final Node[] path;
+        private final int size = state.getSize();
+
+        Worker(Node root, SplittableRandom rnd) {
+            this.root = root;
+            this.rnd = rnd;
+            path = new Node[size * size + 1];
+        }
+
+        void run(Deadline deadline, boolean reportProgress) {
+            int floor = game.getHistorySize();
+            for (int iteration = 1; !deadline.expired(); iteration++) {
+                int length = select();
+                double humanReward = game.isGameOver() ? humanReward() : rollout(!path[length - 1].moverHuman);
+                for (int i = 0; i < length; i++) {
+                    Node n = path[i];
+                    synchronized (n) {
+                        n.wins += n.moverHuman ? humanReward : 1 - humanReward;
+                    }
+                }
+                while (game.getHistorySize() > floor) game.undoMove();
+                if (reportProgress && iteration % PROGRESS_INTERVAL == 0) report(deadline);
+            }
+        }
+
+        private void report(Deadline deadline) {
+            Node best = null;
+            for (Node child : root.children) if (best == null || child.visits > best.visits) best = child;
+            if (best == null) return;
+            int move = best.move;
+            deadline.report(move / (size * size), (move / size) % size, move % size + 1, 100.0 * best.visits / root.visits);
+        }
+
+        // Walk down from the root, playing the moves on the game copy; returns the path length
+        private int select() {
+            Node node = root;
+            int length = 0;
+            while (true) {
+                path[length++] = node;
+                Node next;
+                synchronized (node) {
+                    node.visits++;  // virtual loss until the reward is added
+                    if (node.children == null) {
+                        // New leaves get one playout first; finished games are leaves for good
+                        if (node != root && (node.visits == 1 || game.isGameOver())) return length;
+                        node.children = expand(!node.moverHuman);
+                    }
+                    next = pick(node);
+                }
+                if (next == null) return length;
+                play(next.move, next.moverHuman);
+                node = next;
+            }
+        }
+
+        private Node[] expand(boolean humanToMove) {
+            policy.evaluateAll(buffer);
+            List<Node> list = new ArrayList<>();
+            double[] prior = new double[size * size * size];
+            for (int r = 0; r < size; r++) {
+                for (int c = 0; c < size; c++) {
+                    int legal = game.legalMask(r, c);
+                    for (int v = 1; v <= size; v++) {
+                        if ((legal & (1 << (v - 1))) == 0) continue;
+                        int move = MoveEvaluator.index(size, r, c, v);
+                        prior[move] = buffer[move];
+                        list.add(new Node(move, humanToMove));
+                    }
+                }
+            }
+            list.sort((a, b) -> Double.compare(prior[b.move], prior[a.move]));
+            return list.toArray(new Node[0]);
+        }
+
+        // UCT; untried children go first, in policy order
+        private Node pick(Node node) {
+            Node best = null;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            double logVisits = Math.log(node.visits);
+            for (Node child : node.children) {
+                int n = child.visits;
+                if (n == 0) return child;
+                double value = child.wins / n + EXPLORATION * Math.sqrt(logVisits / n);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        /** Play the game out from the current position; 1 if the human wins, 0.5 for a draw, 0 otherwise. */
+        private double rollout(boolean humanToMove) {
+            while (!game.isGameOver()) {
+                int move = rnd.nextDouble() < RANDOM_MOVE_RATE ? randomMove() : bestMove();
+                if (move < 0) break;
+                play(move, humanToMove);
+                humanToMove = !humanToMove;
+            }
+            return humanReward();
+        }
+
+        // The policy's top move, ties broken at random; a random move if the policy scores none
+        private int bestMove() {
+            policy.evaluateAll(buffer);
+            int best = -1, ties = 0;
+            for (int i = 0; i < buffer.length; i++) {
+                if (buffer[i] == NOT_A_MOVE) continue;
+                if (best < 0 || buffer[i] > buffer[best]) {
+                    best = i;
+                    ties = 1;
+                } else if (buffer[i] == buffer[best] && rnd.nextInt(++ties) == 0) {
+                    best = i;
+                }
+            }
+            return best >= 0 ? best : randomMove();
+        }
+
+        // Uniform over every Latin-legal move, whatever the policy would score
+        private int randomMove() {
+            int chosen = -1, seen = 0;
+            for (int r = 0; r < size; r++) {
+                for (int c = 0; c < size; c++) {
+                    int legal = game.legalMask(r, c);
+                    while (legal != 0) {
+                        int v = Integer.numberOfTrailingZeros(legal) + 1;
+                        legal &= legal - 1;
+                        if (rnd.nextInt(++seen) == 0) chosen = MoveEvaluator.index(size, r, c, v);
+                    }
+                }
+            }
+            return chosen;
+        }
+
+        private void play(int move, boolean isHuman) {
+            game.makeMove(move / (size * size), (move / size) % size, move % size + 1, isHuman);
+        }
+
+        private double humanReward() {
+            boolean humanOut = game.getHumanLives() <= 0, cpuOut = game.getCpuLives() <= 0;
+            if (humanOut || cpuOut) return humanOut == cpuOut ? 0.5 : humanOut ? 0 : 1;
+            int human = game.getHumanScore() * 10 + game.getHumanLives();
+            int cpu = game.getCpuScore() * 10 + game.getCpuLives();
+            return human > cpu ? 1 : human < cpu ? 0 : 0.5;
+        }
+    }
+
+    // Explanation terms: {visits, win rate, playouts, threads}
+    public MoveExplanation explain(int row, int col, int value, double score) {
+        int move = MoveEvaluator.index(state.getSize(), row, col, value);
+        int visits = rootVisits == null ? 0 : rootVisits[move];
+        return new MoveExplanation(this::describe, row, col, value, score,
+            visits, visits == 0 ? 0 : rootWins[move] / visits, playouts, threads);
+    }
+
+    private String describe(MoveExplanation e) {
+        return String.format(
+            "【MONTE CARLO SEARCH】\n" +
+            "════════════════════════════\n" +
+            "📍 Move: %d at (%d,%d)\n" +
+            "🎲 Playouts: %d on %d threads\n" +
+            "🔁 Chosen in %d playouts (%.0f%% of all)\n" +
+            "🏆 WIN RATE: %.0f%%\n" +
+            "════════════════════════════\n" +
+            "STRATEGY: Play it out many times, trust the odds!",
+            e.value, e.row, e.col,
+            (int) e.terms[2], (int) e.terms[3],
+            (int) e.terms[0], e.score,
+            100 * e.terms[1]
+        );
+    }
+}
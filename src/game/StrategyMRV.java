@@ -161,70 +161,62 @@ package game;
 
 import java.util.*;
 
-public class StrategyMRV {
+public class StrategyMRV implements MoveEvaluator {
     private GameState state;
 
     public StrategyMRV(GameState state) {
         this.state = state;
     }
 
-    public int[] findBestMove() {
+    public GameState getState() {
+        return state;
+    }
+
+    // Score every empty cell once, on the value we would play there (lowest legal value)
+    public void evaluateAll(double[] scores) {
         int size = state.getSize();
-        double bestScore = -Double.MAX_VALUE;
-        int bestRow = -1, bestCol = -1;
-        String bestExplanation = "";
+        Arrays.fill(scores, NOT_A_MOVE);
         
-        // Evaluate all empty cells
         for (int r = 0; r < size; r++) {
             for (int c = 0; c < size; c++) {
-                if (state.getGrid()[r][c] == 0) {
-                    CellEvaluation eval = evaluateMRVGreedy(r, c);
-                    
-                    if (eval.score > bestScore) {
-                        bestScore = eval.score;
-                        bestRow = r;
-                        bestCol = c;
-                        bestExplanation = eval.explanation;
-                    }
+                int value = state.findLegalValue(r, c);
+                if (value != -1) {
+                    scores[MoveEvaluator.index(size, r, c, value)] = evaluateMRVGreedy(r, c);
                 }
             }
         }
-        
-        // No valid moves found
-        if (bestRow == -1) {
-            return null;
-        }
-        
-        // Find a legal value for the chosen cell
-        int bestValue = findLegalValueForCell(bestRow, bestCol);
-        if (bestValue == -1) {
-            return null;
-        }
-        
-        // Set reasoning explanation for display
-        state.setCpuReasoningExplanation(bestExplanation);
-        
-        return new int[]{bestRow, bestCol, bestValue};
+    }
+
+    // Explanation terms: {legal options}
+    public MoveExplanation explain(int row, int col, int value, double score) {
+        return new MoveExplanation(this::describe, row, col, value, score,
+            state.countLegalValues(row, col));
     }
 
     // CORE EVALUATION LOGIC
-    private CellEvaluation evaluateMRVGreedy(int row, int col) {
-        int size = state.getSize();
-        
+    private double evaluateMRVGreedy(int row, int col) {
         // 1. Count legal values for this cell
-        int legalValuesCount = countLegalValues(row, col);
+        int legalValuesCount = state.countLegalValues(row, col);
         
         // 2. MRV scoring: FEWER options = HIGHER priority
         // Formula: 1000 / (options + 1)
-        double score = 1000.0 / (legalValuesCount + 1);
+        // Cells with 0 options are death traps and get the lowest possible score
+        if (legalValuesCount == 0) {
+            return -1000;
+        }
+        return 1000.0 / (legalValuesCount + 1);
+    }
+
+    // EXPLANATION (chosen move only)
+    private String describe(MoveExplanation e) {
+        int legalValuesCount = (int) e.terms[0];
         
-        // 3. WARNING for cells with 0 or 1 options
+        // WARNING for cells with 0 or 1 options
         String warning = "";
         String status = "";
         if (legalValuesCount == 0) {
             warning = " ⚠ DEATH TRAP - No legal values!";
             status = "💀 AVOID THIS CELL!";
-            score = -1000; // Lowest possible score
         } else if (legalValuesCount == 1) {
             warning = " ⚠ CRITICAL - Only 1 option left!";
             status = "🚨 FORCED MOVE";
@@ -237,8 +229,7 @@ public class StrategyMRV {
             status = "✅ Less constrained";
         }
         
-        // 4. Generate explanation
-        String explanation = String.format(
+        return String.format(
             "【MRV GREEDY - Constraint Solver】\n" +
             "════════════════════════════\n" +
             "📍 Cell: (%d,%d)\n" +
@@ -251,76 +242,7 @@ public class StrategyMRV {
             "────────────────────────────\n" +
             "STRATEGY: Solve most constrained cells first!\n" +
             "Fewer options = Higher priority = Better constraint solving",
-            row, col, legalValuesCount, warning, legalValuesCount, score, status, score
+            e.row, e.col, legalValuesCount, warning, legalValuesCount, e.score, status, e.score
         );
-        
-        return new CellEvaluation(row, col, score, explanation);
-    }
-
-    // HELPER METHODS
-    private int countLegalValues(int row, int col) {
-        int size = state.getSize();
-        int[][] grid = state.getGrid();
-        Set<Integer> usedValues = new HashSet<>();
-        
-        // Check row
-        for (int c = 0; c < size; c++) {
-            if (grid[row][c] != 0) {
-                usedValues.add(grid[row][c]);
-            }
-        }
-        
-        // Check column
-        for (int r = 0; r < size; r++) {
-            if (grid[r][col] != 0) {
-                usedValues.add(grid[r][col]);
-            }
-        }
-        
-        // Count values NOT used (legal options)
-        int legalCount = 0;
-        for (int v = 1; v <= size; v++) {
-            if (!usedValues.contains(v)) {
-                legalCount++;
-            }
-        }
-        
-        return legalCount;
-    }
-    
-    private int findLegalValueForCell(int row, int col) {
-        int size = state.getSize();
-        Set<Integer> usedValues = new HashSet<>();
-        int[][] grid = state.getGrid();
-        
-        // Check row
-        for (int c = 0; c < size; c++) {
-            if (grid[row][c] != 0) {
-                usedValues.add(grid[row][c]);
-            }
-        }
-        
-        // Check column
-        for (int r = 0; r < size; r++) {
-            if (grid[r][col] != 0) {
-                usedValues.add(grid[r][col]);
-            }
-        }
-        
-        // Return first available legal value (ignoring visibility)
-        for (int v = 1; v <= size; v++) {
-            if (!usedValues.contains(v)) {
-                return v;
-            }
-        }
-        return -1;
-    }
-
-    // HEAT MAP SUPPORT
-    public double evaluateCell(int row, int col) {
-        if (state.getGrid()[row][col] != 0) return 0.0;
-        
-        CellEvaluation eval = evaluateMRVGreedy(row, col);
-        return Math.max(0, eval.score); // Return positive score for heat map
     }
 }
\ No newline at end of file
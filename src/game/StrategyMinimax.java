@@ -0,0 +1,273 @@
+package game;
+
+import java.util.*;
+
+//============================================================================
+//MINIMAX STRATEGY (alpha-beta lookahead over the real game rules)
+//============================================================================
+/**
+ * Two-player search on a copy of the game: the two sides alternate legal
+ * moves through GameState.makeMove/undoMove until isGameOver(). Positions are
+ * scored from the side to move as 10 * score + lives against the opponent's,
+ * the same totals getWinner() compares; running out of lives is a loss.
+ *
+ * Negamax with alpha-beta, iterative deepening and a per-move time budget.
+ * Moves are tried transposition-table move first, then the moves the clue
+ * domains (GameState.domainMask) still allow, then the rest, each group by
+ * StrategyScore's greedy score. Moves outside the domains can only lead to a
+ * grid that breaks some clue, so they are rarely best and mostly get cut.
+ *
+ * Every instance shares one lock-free transposition table; keys mix a hash of
+ * the clues into the position's Zobrist hash, so games never read each
+ * other's entries. Values are stored relative to the node's static score,
+ * since the Zobrist hash only buckets score and lives. Won and lost values
+ * are not stored: they are absolute, and shifting them by another node's
+ * score would make them look like something else.
+ */
+public class StrategyMinimax implements MoveEvaluator {
+    static final long DEFAULT_BUDGET_NANOS = 5_000_000;
+    private static final int WIN = 1_000_000;
+    private static final int INF = Integer.MAX_VALUE / 2;
+    private static final double OFF_DOMAIN = 1e6;  // ordering demotion for moves the clues rule out
+
+    private final GameState state;
+    private final long budgetNanos;
+    private static final TranspositionTable TABLE = new TranspositionTable(1 << 18);
+
+    private final long clueKey;  // mixed into every TABLE key
+    private Tablebase tablebase;  // exact values for 4x4 endgames, if available
+
+    // Search position and per-ply buffers, allocated on the first evaluateAll and
+    // reused by every later one (the board is reset to the game's position)
+    private GameState board;
+    private StrategyScore orderer;
+    private double[][] greedy;
+    private int[][] moves;
+    private Deadline deadline;
+    private boolean timeUp;
+    private long nodes;
+    private int completedDepth;
+
+    public StrategyMinimax(GameState state) {
+        this(state, DEFAULT_BUDGET_NANOS);
+    }
+
+    public StrategyMinimax(GameState state, long budgetNanos) {
+        this.state = state;
+        this.budgetNanos = budgetNanos;
+        this.clueKey = clueKey(state);
+    }
+
+    private static long clueKey(GameState state) {
+        long h = state.getSize();
+        for (int[] clues : new int[][] {state.getTopClues(), state.getRightClues(),
+                state.getBottomClues(), state.getLeftClues()}) {
+            for (int clue : clues) h = (h ^ clue) * 0x100000001B3L;
+        }
+        return new SplittableRandom(h).nextLong();
+    }
+
+    public GameState getState() { return state; }
+    public long getNodeCount() { return nodes; }
+    public int getCompletedDepth() { return completedDepth; }
+
+    /** Use exact tablebase values at endgame nodes; ignored unless it was built for this game's clues. */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase != null && tablebase.matches(state) ? tablebase : null;
+    }
+
+    /**
+     * Root scores from the deepest fully searched iteration: how much the side
+     * to move (the CPU when the GUI asks) gains on the opponent, in points plus
+     * lives / 10, with best play on both sides. Moves that failed low hold an
+     * upper bound, which is still below the best move. Greedy scores break ties.
+     */
+    public void evaluateAll(double[] scores) {
+        evaluateAll(scores, Deadline.after(budgetNanos));
+    }
+
+    /** Deepens until the deadline; each finished iteration is reported to its listener. */
+    public void evaluateAll(double[] scores, Deadline deadline) {
+        int size = state.getSize();
+        Arrays.fill(scores, NOT_A_MOVE);
+        this.deadline = deadline;
+        timeUp = false;
+        nodes = 0;
+        completedDepth = 0;
+        TABLE.newSearch();
+
+        if (board == null) {
+            board = state.copy();
+            orderer = new StrategyScore(board);
+            greedy = new double[size * size + 2][MoveEvaluator.newBuffer(size).length];
+            moves = new int[size * size + 2][size * size * size];
+        } else {
+            board.resetTo(state);
+        }
+        boolean rootHuman = board.isHumanTurn();
+        int rootBase = evaluate(rootHuman);
+        int maxDepth = 1;
+        for (int r = 0; r < size; r++) maxDepth += board.countEmptyInRow(r);
+
+        int count = orderMoves(0, -1);
+        int[] rootMoves = Arrays.copyOf(moves[0], count);
+        double[] rootGreedy = greedy[0];
+        for (int i = 0; i < count; i++) scores[rootMoves[i]] = rootGreedy[rootMoves[i]];  // until depth 1 completes
+        if (count == 0) return;
+
+        int[] values = new int[count];
+        for (int depth = 1; depth < maxDepth; depth++) {
+            int alpha = -INF;
+            for (int i = 0; i < count && !timeUp; i++) {
+                int move = rootMoves[i];
+                play(move, rootHuman);
+                values[i] = -negamax(depth - 1, 1, -INF, -alpha, !rootHuman);
+                board.undoMove();
+                if (values[i] > alpha) alpha = values[i];
+            }
+            if (timeUp) break;
+            completedDepth = depth;
+            for (int i = 0; i < count; i++) {
+                int move = rootMoves[i];
+                scores[move] = (values[i] - rootBase) / 10.0 + rootGreedy[move] * 1e-4;
+            }
+            // Best move first for the next iteration
+            int best = 0;
+            for (int i = 1; i < count; i++) if (values[i] > values[best]) best = i;
+            int m = rootMoves[best]; rootMoves[best] = rootMoves[0]; rootMoves[0] = m;
+            int v = values[best]; values[best] = values[0]; values[0] = v;
+            deadline.report(m / (size * size), (m / size) % size, m % size + 1, scores[m]);
+            if (Math.abs(alpha) >= WIN) break;  // forced result
+        }
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta, boolean humanToMove) {
+        // Checked at every node: ordering a node's moves costs far more than reading the clock
+        nodes++;
+        if (timeUp || deadline.expired()) {
+            timeUp = true;
+            return 0;
+        }
+        board.setHumanTurn(humanToMove);
+        int base = evaluate(humanToMove);
+        if (board.isGameOver()) return terminal(humanToMove, base);
+        if (tablebase != null && tablebase.isExact(board)) return base + tablebase.value(board);
+        if (depth == 0) return base;
+
+        long key = board.getHash() ^ clueKey;
+        long entry = TABLE.probe(key);
+        int ttMove = -1;
+        if (entry != 0) {
+            int size = board.getSize();
+            if (TranspositionTable.moveCell(entry) != TranspositionTable.NO_CELL) {
+                ttMove = TranspositionTable.moveCell(entry) * size + TranspositionTable.moveValue(entry) - 1;
+            }
+            if (TranspositionTable.depth(entry) >= depth) {
+                int stored = base + TranspositionTable.value(entry);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT) return stored;
+                if (bound == TranspositionTable.LOWER && stored >= beta) return stored;
+                if (bound == TranspositionTable.UPPER && stored <= alpha) return stored;
+            }
+        }
+
+        int alphaStart = alpha;
+        int best = -INF, bestMove = -1;
+        int count = orderMoves(ply, ttMove);
+        int[] list = moves[ply];
+        for (int i = 0; i < count; i++) {
+            play(list[i], humanToMove);
+            int value = -negamax(depth - 1, ply + 1, -beta, -alpha, !humanToMove);
+            board.undoMove();
+            board.setHumanTurn(humanToMove);
+            if (timeUp) return 0;
+            if (value > best) {
+                best = value;
+                bestMove = list[i];
+            }
+            if (value > alpha) alpha = value;
+            if (alpha >= beta) break;
+        }
+
+        if (Math.abs(best) < WIN) {
+            int bound = best <= alphaStart ? TranspositionTable.UPPER
+                    : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+            int size = board.getSize();
+            TABLE.store(key, best - base, depth, bound, bestMove / size, bestMove % size + 1);
+        }
+        return best;
+    }
+
+    /** Legal moves at this ply (as buffer indices) into moves[ply], TT move first, then in-domain, then by greedy score. */
+    private int orderMoves(int ply, int ttMove) {
+        double[] buf = greedy[ply];
+        int[] list = moves[ply];
+        orderer.evaluateAll(buf);
+        int count = 0;
+        for (int i = 0; i < buf.length; i++) {
+            if (buf[i] == NOT_A_MOVE) continue;
+            // insertion sort, highest first
+            double key = orderKey(buf, i, ttMove);
+            int j = count++;
+            while (j > 0 && orderKey(buf, list[j - 1], ttMove) < key) {
+                list[j] = list[j - 1];
+                j--;
+            }
+            list[j] = i;
+        }
+        return count;
+    }
+
+    private double orderKey(double[] buf, int move, int ttMove) {
+        if (move == ttMove) return Double.MAX_VALUE;
+        int size = board.getSize(), cell = move / size;
+        boolean allowed = (board.domainMask(cell / size, cell % size) & (1 << (move % size))) != 0;
+        return allowed ? buf[move] : buf[move] - OFF_DOMAIN;
+    }
+
+    private void play(int move, boolean isHuman) {
+        int size = board.getSize();
+        board.makeMove(move / (size * size), (move / size) % size, move % size + 1, isHuman);
+    }
+
+    // Static score for the side to move: 10 * score + lives, minus the opponent's
+    private int evaluate(boolean humanToMove) {
+        int cpu = 10 * board.getCpuScore() + board.getCpuLives();
+        int human = 10 * board.getHumanScore() + board.getHumanLives();
+        return humanToMove ? human - cpu : cpu - human;
+    }
+
+    private int terminal(boolean humanToMove, int base) {
+        boolean humanOut = board.getHumanLives() <= 0, cpuOut = board.getCpuLives() <= 0;
+        if (humanOut && cpuOut) return 0;
+        if (humanOut) return humanToMove ? -WIN : WIN;
+        if (cpuOut) return humanToMove ? WIN : -WIN;
+        return base;
+    }
+
+    // Explanation terms: {depth searched, nodes, greedy score}
+    public MoveExplanation explain(int row, int col, int value, double score) {
+        int size = state.getSize();
+        double[] buf = MoveEvaluator.newBuffer(size);
+        new StrategyScore(state).evaluateAll(buf);
+        return new MoveExplanation(this::describe, row, col, value, score,
+            completedDepth, nodes, buf[MoveEvaluator.index(size, row, col, value)]);
+    }
+
+    private String describe(MoveExplanation e) {
+        int depth = (int) e.terms[0];
+        return String.format(
+            "【MINIMAX LOOKAHEAD】\n" +
+            "════════════════════════════\n" +
+            "📍 Move: %d at (%d,%d)\n" +
+            "🔎 Searched %s (%d positions)\n" +
+            "⚖️ Greedy score alone: %.1f\n" +
+            "📈 PROJECTED LEAD CHANGE: %+.1f\n" +
+            "════════════════════════════\n" +
+            "STRATEGY: Assume the best reply, then pick!",
+            e.value, e.row, e.col,
+            depth == 0 ? "greedy only (no time)" : depth + " moves ahead",
+            (long) e.terms[1], e.terms[2], e.score
+        );
+    }
+}
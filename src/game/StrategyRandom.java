@@ -0,0 +1,58 @@
+package game;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+//============================================================================
+//RANDOM STRATEGY (uniform legal move, tournament baseline)
+//============================================================================
+/**
+ * Plays a uniformly random legal move: every legal candidate gets a random
+ * score, so selectBest picks one of them with equal chance. Used as the
+ * weakest stand-in opponent in headless tournaments.
+ */
+public class StrategyRandom implements MoveEvaluator {
+ private final GameState state;
+ private final SplittableRandom random;
+
+ public StrategyRandom(GameState state) {
+     this(state, new SplittableRandom());
+ }
+
+ public StrategyRandom(GameState state, SplittableRandom random) {
+     this.state = state;
+     this.random = random;
+ }
+
+ public GameState getState() { return state; }
+
+ public void evaluateAll(double[] scores) {
+     int size = state.getSize();
+     Arrays.fill(scores, NOT_A_MOVE);
+     for (int r = 0; r < size; r++) {
+         for (int c = 0; c < size; c++) {
+             int legal = state.legalMask(r, c);
+             while (legal != 0) {
+                 int v = Integer.numberOfTrailingZeros(legal) + 1;
+                 legal &= legal - 1;
+                 scores[MoveEvaluator.index(size, r, c, v)] = random.nextDouble();
+             }
+         }
+     }
+ }
+
+ public MoveExplanation explain(int row, int col, int value, double score) {
+     return new MoveExplanation(this::describe, row, col, value, score,
+         state.countLegalValues(row, col));
+ }
+
+ private String describe(MoveExplanation e) {
+     return String.format(
+         "【RANDOM】\n" +
+         "════════════════════════════\n" +
+         "📍 Move: %d at (%d,%d)\n" +
+         "🎲 Picked at random from %d legal value(s)\n" +
+         "════════════════════════════",
+         e.value, e.row, e.col, (int) e.terms[0]);
+ }
+}
@@ -5,67 +5,66 @@ import java.util.*;
 //============================================================================
 //SCORE GREEDY STRATEGY - Person 3
 //============================================================================
-public class StrategyScore {
+public class StrategyScore implements MoveEvaluator {
  private GameState state;
 
  public StrategyScore(GameState state) {
      this.state = state;
  }
 
- public int[] findBestMove() {
+ public GameState getState() { return state; }
+
+ public void evaluateAll(double[] scores) {
      int size = state.getSize();
-     double bestScore = -Double.MAX_VALUE;
-     int bestRow = -1, bestCol = -1, bestValue = -1;
-     String bestExplanation = "";
+     Arrays.fill(scores, NOT_A_MOVE);
 
      for (int r = 0; r < size; r++) {
          for (int c = 0; c < size; c++) {
-             if (state.getGrid()[r][c] == 0) {
-                 for (int v = 1; v <= size; v++) {
-                     if (!state.getGraph().hasConflict(state.getGrid(), r, c, v)) {
-                         CellEvaluation eval = evaluateScore(r, c, v);
-                         if (eval.score > bestScore) {
-                             bestScore = eval.score;
-                             bestRow = r;
-                             bestCol = c;
-                             bestValue = v;
-                             bestExplanation = eval.explanation;
-                         }
-                     }
+             int legal = state.legalMask(r, c);
+             for (int v = 1; v <= size; v++) {
+                 if ((legal & (1 << (v - 1))) != 0) {
+                     scores[MoveEvaluator.index(size, r, c, v)] = evaluateScore(r, c, v);
                  }
              }
          }
      }
-
-     if (bestRow == -1) return null;
-
-     state.setCpuReasoningExplanation(bestExplanation);
-     return new int[]{bestRow, bestCol, bestValue};
  }
 
- private CellEvaluation evaluateScore(int row, int col, int value) {
-     int[][] temp = deepCopyGrid(state.getGrid());
-     temp[row][col] = value;
+ // Explanation terms: {legal options, completes row, completes column}
+ public MoveExplanation explain(int row, int col, int value, double score) {
+     return new MoveExplanation(this::describe, row, col, value, score,
+         state.countLegalValues(row, col),
+         state.countEmptyInRow(row) == 1 ? 1 : 0,
+         state.countEmptyInColumn(col) == 1 ? 1 : 0);
+ }
 
+ private double evaluateScore(int row, int col, int value) {
      double score = 1.0; // base
 
-     boolean rowComp = isRowComplete(temp, row);
-     boolean colComp = isColumnComplete(temp, col);
+     // (row, col) is empty, so the move completes a line iff it is the line's last gap
+     boolean rowComp = state.countEmptyInRow(row) == 1;
+     boolean colComp = state.countEmptyInColumn(col) == 1;
 
      if (rowComp) {
          score += 10.0;
-         if (!visibilityObviouslyWrong(temp, row, true)) score += 15.0;
+         if (!visibilityObviouslyWrong(row, col, value, true)) score += 15.0;
      }
      if (colComp) {
          score += 10.0;
-         if (!visibilityObviouslyWrong(temp, col, false)) score += 15.0;
+         if (!visibilityObviouslyWrong(row, col, value, false)) score += 15.0;
      }
      if (rowComp && colComp) score += 25.0;
 
-     int legalCount = countLegalValues(row, col);
+     int legalCount = state.countLegalValues(row, col);
      if (legalCount <= 2) score -= 5.0;
 
-     String explanation = String.format(
+     return score;
+ }
+
+ private String describe(MoveExplanation e) {
+     int legalCount = (int) e.terms[0];
+     boolean rowComp = e.terms[1] != 0, colComp = e.terms[2] != 0;
+     return String.format(
          "【SCORE GREEDY】\n" +
          "════════════════════════════\n" +
          "📍 Move: %d at (%d,%d)\n" +
@@ -74,53 +73,16 @@ public class StrategyScore {
          "📈 PROJECTED SCORE: %.1f\n" +
          "════════════════════════════\n" +
          "STRATEGY: Maximize immediate points!",
-         value, row, col, legalCount, legalCount <= 2 ? " → -5 risk" : "",
+         e.value, e.row, e.col, legalCount, legalCount <= 2 ? " → -5 risk" : "",
          rowComp ? "✓ Completes ROW (+10 +15 gamble)\n" : "",
          colComp ? "✓ Completes COL (+10 +15 gamble)\n" : "",
          rowComp && colComp ? "🎉 DOUBLE COMPLETION (+25)\n" : "",
-         score
+         e.score
      );
-
-     return new CellEvaluation(row, col, score, explanation);
  }
 
- private boolean visibilityObviouslyWrong(int[][] grid, int index, boolean isRow) {
+ private boolean visibilityObviouslyWrong(int row, int col, int value, boolean isRow) {
      // Simplified check – you can expand if needed
      return false; // we gamble unless clearly impossible (conservative)
  }
-
- private boolean isRowComplete(int[][] g, int r) {
-     for (int c = 0; c < state.getSize(); c++) if (g[r][c] == 0) return false;
-     return true;
- }
-
- private boolean isColumnComplete(int[][] g, int c) {
-     for (int r = 0; r < state.getSize(); r++) if (g[r][c] == 0) return false;
-     return true;
- }
-
- private int countLegalValues(int row, int col) {
-     int count = 0;
-     for (int v = 1; v <= state.getSize(); v++) {
-         if (!state.getGraph().hasConflict(state.getGrid(), row, col, v)) count++;
-     }
-     return count;
- }
-
- private int[][] deepCopyGrid(int[][] original) {
-     int[][] copy = new int[state.getSize()][state.getSize()];
-     for (int i = 0; i < state.getSize(); i++) copy[i] = original[i].clone();
-     return copy;
- }
-
- public double evaluateCell(int row, int col) {
-     if (state.getGrid()[row][col] != 0) return 0.0;
-     double max = 0;
-     for (int v = 1; v <= state.getSize(); v++) {
-         if (!state.getGraph().hasConflict(state.getGrid(), row, col, v)) {
-             max = Math.max(max, evaluateScore(row, col, v).score);
-         }
-     }
-     return max;
- }
 }
\ No newline at end of file
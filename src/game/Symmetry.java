@@ -0,0 +1,149 @@
+package game;
+
+//============================================================================
+//SYMMETRY (the 8 rotations/reflections of a board and its clues)
+//============================================================================
+/**
+ * A Skyscrapers position keeps its meaning when the board is rotated or
+ * reflected, as long as the clues move with it: each clue just looks into
+ * the board from the edge it ends up on. Transforms are numbered 0-7:
+ * 0 identity, 1-3 rotations by 90/180/270 degrees clockwise, 4 mirror
+ * left-right, 5 transpose, 6 mirror top-bottom, 7 anti-transpose.
+ *
+ * Clues are handled by treating them as the border of an (N+2)x(N+2) board,
+ * so the same coordinate formula moves cells and clues.
+ *
+ * canonicalTransform picks the transform that makes (clues, grid)
+ * lexicographically smallest. Equivalent positions share one representative,
+ * and inverse(k) maps results back.
+ */
+final class Symmetry {
+ static final int COUNT = 8;
+ static final int IDENTITY = 0;
+
+ private Symmetry() { }
+
+ static int inverse(int k) {
+     return k == 1 ? 3 : k == 3 ? 1 : k;
+ }
+
+ /** Where (row, col) of an m x m board goes under transform k, as row * m + col. */
+ static int map(int m, int row, int col, int k) {
+     int r, c;
+     switch (k) {
+         case 0 -> { r = row; c = col; }
+         case 1 -> { r = col; c = m - 1 - row; }
+         case 2 -> { r = m - 1 - row; c = m - 1 - col; }
+         case 3 -> { r = m - 1 - col; c = row; }
+         case 4 -> { r = row; c = m - 1 - col; }
+         case 5 -> { r = col; c = row; }
+         case 6 -> { r = m - 1 - row; c = col; }
+         case 7 -> { r = m - 1 - col; c = m - 1 - row; }
+         default -> throw new IllegalArgumentException("No symmetry " + k);
+     }
+     return r * m + c;
+ }
+
+ /** Cell permutation of an N x N board: cell i moves to map[i]. */
+ static int[] cellMap(int size, int k) {
+     int[] map = new int[size * size];
+     for (int cell = 0; cell < map.length; cell++) map[cell] = map(size, cell / size, cell % size, k);
+     return map;
+ }
+
+ static int[][] transformGrid(int[][] grid, int k) {
+     int size = grid.length;
+     int[][] out = new int[size][size];
+     for (int r = 0; r < size; r++) {
+         for (int c = 0; c < size; c++) {
+             int to = map(size, r, c, k);
+             out[to / size][to % size] = grid[r][c];
+         }
+     }
+     return out;
+ }
+
+ /** Clues after transform k, as {top, right, bottom, left}. */
+ static int[][] transformClues(int[] top, int[] right, int[] bottom, int[] left, int k) {
+     int size = top.length, m = size + 2;
+     int[][] out = new int[4][size];
+     for (int i = 0; i < size; i++) {
+         place(out, m, map(m, 0, i + 1, k), top[i]);
+         place(out, m, map(m, i + 1, m - 1, k), right[i]);
+         place(out, m, map(m, m - 1, i + 1, k), bottom[i]);
+         place(out, m, map(m, i + 1, 0, k), left[i]);
+     }
+     return out;
+ }
+
+ // Put a clue at border cell `at` of the (N+2)-board into its side array
+ private static void place(int[][] out, int m, int at, int clue) {
+     int r = at / m, c = at % m;
+     if (r == 0) out[0][c - 1] = clue;
+     else if (c == m - 1) out[1][r - 1] = clue;
+     else if (r == m - 1) out[2][c - 1] = clue;
+     else out[3][r - 1] = clue;
+ }
+
+ /** Transforms that leave the clue set unchanged (always includes the identity). */
+ static int[] stabilizer(int[] top, int[] right, int[] bottom, int[] left) {
+     int[][] clues = {top, right, bottom, left};
+     int[] found = new int[COUNT];
+     int n = 0;
+     for (int k = 0; k < COUNT; k++) {
+         if (java.util.Arrays.deepEquals(transformClues(top, right, bottom, left, k), clues)) found[n++] = k;
+     }
+     return java.util.Arrays.copyOf(found, n);
+ }
+
+ /**
+  * Transform giving the lexicographically smallest (top, right, bottom, left,
+  * grid rows); {@code grid} may be null to canonicalize a clue set alone.
+  */
+ static int canonicalTransform(int[][] grid, int[] top, int[] right, int[] bottom, int[] left) {
+     int best = IDENTITY;
+     int[][] bestClues = {top, right, bottom, left};
+     int[][] bestGrid = grid;
+     for (int k = 1; k < COUNT; k++) {
+         int[][] clues = transformClues(top, right, bottom, left, k);
+         int cmp = compare(clues, bestClues);
+         int[][] g = null;
+         if (cmp == 0 && grid != null) {
+             g = transformGrid(grid, k);
+             cmp = compare(g, bestGrid);
+         }
+         if (cmp < 0) {
+             best = k;
+             bestClues = clues;
+             bestGrid = grid == null ? null : g != null ? g : transformGrid(grid, k);
+         }
+     }
+     return best;
+ }
+
+ private static int compare(int[][] a, int[][] b) {
+     for (int i = 0; i < a.length; i++) {
+         int cmp = java.util.Arrays.compare(a[i], b[i]);
+         if (cmp != 0) return cmp;
+     }
+     return 0;
+ }
+
+ /** The same puzzle seen through transform k (clues and solution move together). */
+ static Puzzle transform(Puzzle p, int k) {
+     int size = p.getSize();
+     int[][] clues = transformClues(p.top, p.right, p.bottom, p.left, k);
+     int[] solution = new int[size * size];
+     int[] map = cellMap(size, k);
+     for (int cell = 0; cell < solution.length; cell++) solution[map[cell]] = p.solution[cell];
+     return new Puzzle(clues[0], clues[1], clues[2], clues[3], solution, p.getDifficulty());
+ }
+
+ /** Canonical representative of a puzzle: equal for all 8 views of the same puzzle. */
+ static Puzzle canonical(Puzzle p) {
+     int size = p.getSize();
+     int[][] grid = new int[size][size];
+     for (int r = 0; r < size; r++) System.arraycopy(p.solution, r * size, grid[r], 0, size);
+     return transform(p, canonicalTransform(grid, p.top, p.right, p.bottom, p.left));
+ }
+}
@@ -0,0 +1,374 @@
+package game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+//============================================================================
+//TABLEBASE (exact 4x4 endgame values for one clue set)
+//============================================================================
+/**
+ * Solved values for every 4x4 endgame grid, i.e. every partial Latin square
+ * with at least MIN_FILLED cells filled. All 127.5 million partial Latin
+ * squares of order 4 would take gigabytes; the 5.2 million endgames fit in
+ * 64 MB and searches reach them after a few plies (see StrategyTablebase).
+ *
+ * Both players score by the same rules, so what the side to move can still
+ * gain on its opponent depends only on the grid: a move is worth
+ * 10 * points - lives lost (the totals getWinner() compares), and
+ *   value(grid) = max over legal moves of (move gain - value(grid after move)),
+ * with 0 once no legal move is left. The generator enumerates the endgame
+ * grids and solves each through a memoized search, so every grid's value is
+ * fixed only after all of its successors (the game only ever adds cells,
+ * which makes this the retrograde order).
+ *
+ * Values assume nobody is knocked out. StrategyTablebase checks that this
+ * still holds before trusting them.
+ *
+ * Symmetry: a table answers for all 8 rotations/reflections of its clue
+ * set (positions are turned into the table's orientation first), and grids
+ * that a symmetry of the clue set itself maps onto each other share one
+ * entry, stored under the smallest of their keys.
+ *
+ * Grids are keyed by their PackedPosition grid bits. Entries sit
+ * in an open-addressing long[] as key << 16 | (value & 0xFFFF). The file
+ * holds a header with the clues and the table as written, so loading just
+ * maps it.
+ */
+class Tablebase {
+ static final int SIZE = 4;
+ static final int MIN_FILLED = 12;
+ static final int MAGIC = 0x42545754;  // "TWTB"
+ private static final int HEADER_BYTES = 64;
+ private static final long EMPTY = -1L;
+
+ private final int[] top, right, bottom, left;
+ private final LongBuffer table;
+ private final int mask;
+ private final int entries;
+ private final int[][] stabilizerMaps;  // cell maps of the clue set's own symmetries, identity excluded
+ private volatile Orientation lastOrientation;
+
+ private static final int[][] CELL_MAPS = new int[Symmetry.COUNT][];
+ static {
+     for (int k = 0; k < Symmetry.COUNT; k++) CELL_MAPS[k] = Symmetry.cellMap(SIZE, k);
+ }
+
+ // Which transform turns a game's clue arrays into the table's; cached by array identity
+ private static final class Orientation {
+     final int[] top, right, bottom, left;
+     final int transform;
+
+     Orientation(GameState state, int transform) {
+         top = state.getTopClues();
+         right = state.getRightClues();
+         bottom = state.getBottomClues();
+         left = state.getLeftClues();
+         this.transform = transform;
+     }
+
+     boolean isFor(GameState state) {
+         return top == state.getTopClues() && right == state.getRightClues()
+                 && bottom == state.getBottomClues() && left == state.getLeftClues();
+     }
+ }
+
+ private Tablebase(int[] top, int[] right, int[] bottom, int[] left, LongBuffer table, int entries) {
+     this.top = top;
+     this.right = right;
+     this.bottom = bottom;
+     this.left = left;
+     this.table = table;
+     this.mask = table.capacity() - 1;
+     this.entries = entries;
+     int[] stabilizer = Symmetry.stabilizer(top, right, bottom, left);
+     stabilizerMaps = new int[stabilizer.length - 1][];
+     for (int i = 1; i < stabilizer.length; i++) stabilizerMaps[i - 1] = CELL_MAPS[stabilizer[i]];
+ }
+
+ public int getEntryCount() { return entries; }
+
+ /** Was this table built for the game's clues, up to rotation or reflection? */
+ public boolean matches(GameState state) {
+     return orientation(state) >= 0;
+ }
+
+ /** Transform from the game's orientation to the table's, or -1 for other clues. */
+ private int orientation(GameState state) {
+     Orientation cached = lastOrientation;
+     if (cached != null && cached.isFor(state)) return cached.transform;
+     int transform = -1;
+     if (state.getSize() == SIZE) {
+         int[][] clues = {top, right, bottom, left};
+         for (int k = 0; k < Symmetry.COUNT && transform < 0; k++) {
+             int[][] turned = Symmetry.transformClues(state.getTopClues(), state.getRightClues(),
+                     state.getBottomClues(), state.getLeftClues(), k);
+             if (Arrays.deepEquals(turned, clues)) transform = k;
+         }
+     }
+     lastOrientation = new Orientation(state, transform);
+     return transform;
+ }
+
+ // === LOOKUP ===
+ static boolean covers(int[][] grid) {
+     int filled = 0;
+     for (int[] row : grid) for (int v : row) if (v != 0) filled++;
+     return filled >= MIN_FILLED;
+ }
+
+ /**
+  * Can the table's value be trusted for this game position? It must be an
+  * endgame of the same clue set, and neither side may be knockable: each
+  * unfinished line can cost somebody at most 15 lives.
+  */
+ public boolean isExact(GameState state) {
+     if (!matches(state) || !covers(state.getGrid())) return false;
+     int openLines = 0;
+     for (int i = 0; i < SIZE; i++) {
+         if (!state.isRowComplete(i)) openLines++;
+         if (!state.isColumnComplete(i)) openLines++;
+     }
+     return Math.min(state.getHumanLives(), state.getCpuLives()) > 15 * openLines;
+ }
+
+ /** The game's grid packed in the table's orientation; the game must match. */
+ long keyFor(GameState state) {
+     return PackedPosition.permute(PackedPosition.grid(PackedPosition.of(state)), CELL_MAPS[orientation(state)]);
+ }
+
+ /** Smallest key among the grids the clue set's own symmetries make equivalent. */
+ long canonical(long key) {
+     long best = key;
+     for (int[] map : stabilizerMaps) best = Math.min(best, PackedPosition.permute(key, map));
+     return best;
+ }
+
+ /** Value of the game's position for the side to move; the game must match and be covered. */
+ public int value(GameState state) {
+     return value(keyFor(state));
+ }
+
+ /** What a legal move is worth to its player from here on: its gain now minus the opponent's value after it. */
+ public int moveValue(GameState state, int row, int col, int value) {
+     long key = keyFor(state);
+     int cell = CELL_MAPS[orientation(state)][row * SIZE + col];
+     return moveGain(key, cell, value) - value(PackedPosition.set(key, cell, value));
+ }
+
+ /** Value of a grid (in the table's orientation) for the side to move, or Integer.MIN_VALUE if it is not in the table. */
+ int value(long key) {
+     key = canonical(key);
+     for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+         long entry = table.get(i);
+         if (entry == EMPTY) return Integer.MIN_VALUE;
+         if (entry >>> 16 == key) return (short) entry;
+     }
+ }
+
+ private static int slot(long key, int mask) {
+     long h = key * 0x9E3779B97F4A7C15L;
+     return (int) (h >>> 40) & mask;
+ }
+
+ /**
+  * What a move is worth to the player making it: 10 * points scored minus
+  * lives lost, by the same rules as GameState.makeMove. The move must be legal.
+  */
+ int moveGain(long key, int cell, int value) {
+     long after = PackedPosition.set(key, cell, value);
+     int row = cell / SIZE, col = cell % SIZE;
+     VisibilityTable visibility = VisibilityTable.forSize(SIZE);
+     int points = 0, lives = 0;
+     boolean completed = false;
+     long rowLine = PackedPosition.rowLine(after, row);
+     if (PackedPosition.isLineFull(rowLine)) {
+         completed = true;
+         if (visibility.isValid(rowLine, left[row], right[row])) points += 15;
+         else lives += 15;
+     }
+     long colLine = PackedPosition.columnLine(after, col);
+     if (PackedPosition.isLineFull(colLine)) {
+         completed = true;
+         if (visibility.isValid(colLine, top[col], bottom[col])) points += 15;
+         else lives += 15;
+     }
+     if (!completed) points = 1;
+     return 10 * points - lives;
+ }
+
+ //============================================================================
+ //GENERATION
+ //============================================================================
+ /** Solve every endgame grid for this clue set. */
+ static Tablebase build(int[] top, int[] right, int[] bottom, int[] left) {
+     if (top.length != SIZE || right.length != SIZE || bottom.length != SIZE || left.length != SIZE) {
+         throw new IllegalArgumentException("The tablebase covers " + SIZE + "x" + SIZE + " boards only");
+     }
+     Builder builder = new Builder(new Tablebase(top.clone(), right.clone(), bottom.clone(), left.clone(),
+             LongBuffer.allocate(1), 0));
+     builder.enumerate(0, 0, 0L, new int[SIZE], new int[SIZE]);
+     return builder.result();
+ }
+
+ private static final class Builder {
+     private final Tablebase rules;
+     private long[] slots = new long[1 << 23];  // 5.2 million endgames at load factor 0.62
+     private int count = 0;
+
+     Builder(Tablebase rules) {
+         this.rules = rules;
+         Arrays.fill(slots, EMPTY);
+     }
+
+     // Every partial Latin square, cell by cell (empty or any free value); solve the endgames
+     void enumerate(int cell, int filled, long key, int[] rowUsed, int[] colUsed) {
+         int open = SIZE * SIZE - cell;
+         if (filled + open < MIN_FILLED) return;
+         if (cell == SIZE * SIZE) {
+             solve(key, rowUsed, colUsed);
+             return;
+         }
+         enumerate(cell + 1, filled, key, rowUsed, colUsed);
+         int r = cell / SIZE, c = cell % SIZE;
+         int free = ((1 << SIZE) - 1) & ~(rowUsed[r] | colUsed[c]);
+         while (free != 0) {
+             int bit = free & -free;
+             free &= free - 1;
+             rowUsed[r] |= bit;
+             colUsed[c] |= bit;
+             enumerate(cell + 1, filled + 1, PackedPosition.set(key, cell, Integer.numberOfTrailingZeros(bit) + 1), rowUsed, colUsed);
+             rowUsed[r] &= ~bit;
+             colUsed[c] &= ~bit;
+         }
+     }
+
+     int solve(long key, int[] rowUsed, int[] colUsed) {
+         int known = get(rules.canonical(key));
+         if (known != Integer.MIN_VALUE) return known;
+         int best = Integer.MIN_VALUE;
+         for (int cell = 0; cell < SIZE * SIZE; cell++) {
+             if (PackedPosition.get(key, cell) != 0) continue;
+             int r = cell / SIZE, c = cell % SIZE;
+             int free = ((1 << SIZE) - 1) & ~(rowUsed[r] | colUsed[c]);
+             while (free != 0) {
+                 int bit = free & -free;
+                 free &= free - 1;
+                 int value = Integer.numberOfTrailingZeros(bit) + 1;
+                 rowUsed[r] |= bit;
+                 colUsed[c] |= bit;
+                 int v = rules.moveGain(key, cell, value) - solve(PackedPosition.set(key, cell, value), rowUsed, colUsed);
+                 rowUsed[r] &= ~bit;
+                 colUsed[c] &= ~bit;
+                 if (v > best) best = v;
+             }
+         }
+         if (best == Integer.MIN_VALUE) best = 0;  // no legal move: game over
+         put(rules.canonical(key), best);
+         return best;
+     }
+
+     private int get(long key) {
+         int m = slots.length - 1;
+         for (int i = slot(key, m); ; i = (i + 1) & m) {
+             long entry = slots[i];
+             if (entry == EMPTY) return Integer.MIN_VALUE;
+             if (entry >>> 16 == key) return (short) entry;
+         }
+     }
+
+     private void put(long key, int value) {
+         if (value != (short) value) throw new IllegalStateException("Value out of range: " + value);
+         if (4 * (count + 1) > 3 * slots.length) grow();  // keep the load factor under 0.75
+         insert(slots, key << 16 | (value & 0xFFFF));
+         count++;
+     }
+
+     private void grow() {
+         long[] old = slots;
+         slots = new long[old.length * 2];
+         Arrays.fill(slots, EMPTY);
+         for (long entry : old) if (entry != EMPTY) insert(slots, entry);
+     }
+
+     private static void insert(long[] slots, long entry) {
+         int m = slots.length - 1;
+         int i = slot(entry >>> 16, m);
+         while (slots[i] != EMPTY) i = (i + 1) & m;
+         slots[i] = entry;
+     }
+
+     Tablebase result() {
+         return new Tablebase(rules.top, rules.right, rules.bottom, rules.left, LongBuffer.wrap(slots), count);
+     }
+ }
+
+ //============================================================================
+ //FILE FORMAT
+ //============================================================================
+ // Header (little-endian, 64 bytes): int magic, int size, int entries,
+ // int table length, then 4 x SIZE clue bytes; the table follows as longs.
+ void write(Path file) throws IOException {
+     ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+     header.putInt(MAGIC).putInt(SIZE).putInt(entries).putInt(table.capacity());
+     for (int[] side : new int[][]{top, right, bottom, left}) for (int v : side) header.put((byte) v);
+     header.clear();
+     ByteBuffer body = ByteBuffer.allocate(8 * 4096).order(ByteOrder.LITTLE_ENDIAN);
+     try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+             StandardOpenOption.TRUNCATE_EXISTING)) {
+         while (header.hasRemaining()) out.write(header);
+         for (int i = 0; i < table.capacity(); i++) {
+             body.putLong(table.get(i));
+             if (!body.hasRemaining() || i == table.capacity() - 1) {
+                 body.flip();
+                 while (body.hasRemaining()) out.write(body);
+                 body.clear();
+             }
+         }
+     }
+ }
+
+ static Tablebase load(Path file) throws IOException {
+     try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+         ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+         while (header.hasRemaining() && in.read(header) >= 0) { }
+         header.flip();
+         if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != SIZE) {
+             throw new IOException("Not a " + SIZE + "x" + SIZE + " tablebase");
+         }
+         int entries = header.getInt();
+         int length = header.getInt();
+         if (Integer.bitCount(length) != 1 || in.size() < HEADER_BYTES + 8L * length) {
+             throw new IOException("Tablebase is truncated");
+         }
+         int[][] clues = new int[4][SIZE];
+         for (int[] side : clues) for (int i = 0; i < SIZE; i++) side[i] = header.get();
+         // The mapping stays valid after the channel is closed
+         LongBuffer table = in.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, 8L * length)
+                 .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+         return new Tablebase(clues[0], clues[1], clues[2], clues[3], table, entries);
+     }
+ }
+
+ // ============================================================================
+ // MAIN: Tablebase <file> <top> <right> <bottom> <left>, clues comma-separated
+ // ============================================================================
+ public static void main(String[] args) throws IOException {
+     if (args.length < 5) {
+         System.err.println("Usage: Tablebase <file> <top> <right> <bottom> <left>   (e.g. 2,1,4,2)");
+         return;
+     }
+     int[][] clues = new int[4][];
+     for (int side = 0; side < 4; side++) {
+         clues[side] = Arrays.stream(args[side + 1].split(",")).mapToInt(Integer::parseInt).toArray();
+     }
+     Tablebase tablebase = build(clues[0], clues[1], clues[2], clues[3]);
+     tablebase.write(Path.of(args[0]));
+     System.out.println("Wrote " + tablebase.getEntryCount() + " positions to " + args[0]);
+ }
+}
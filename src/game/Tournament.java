@@ -0,0 +1,300 @@
+package game;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+//============================================================================
+//TOURNAMENT (headless self-play over a matrix of strategy pairings)
+//============================================================================
+/**
+ * Plays every (human-side player, CPU-side player) pairing on the same pool of
+ * generated puzzles, with no GUI and no turn delays. A turn runs the same way
+ * as in TowersGameGUI: deadlock check, one evaluateAll into the move buffer,
+ * selectBest, makeMove. The turn passes only when the move is accepted.
+ *
+ * Games are spread over all cores with a parallel stream. Each worker keeps
+ * its own tallies, which are merged at the end, so workers never contend.
+ * Game g plays puzzle g mod pool size in every pairing, seeded from the
+ * tournament seed and g. That makes a run reproducible and lets pairings be
+ * compared game by game.
+ *
+ * With a recorder set, every finished game is also appended to a
+ * GameRecordFile.
+ */
+class Tournament {
+ /** Who can take a seat: the four greedy strategies, the search strategies and two human stand-ins. */
+ enum Player {
+     RANDOM("random", StrategyRandom::new),
+     GREEDY_HUMAN("greedy-human", StrategyGreedyHuman::new),
+     LIVES("lives", (state, rnd) -> new StrategyLives(state)),
+     COMPLETION("completion", (state, rnd) -> new StrategyCompletion(state)),
+     SCORE("score", (state, rnd) -> new StrategyScore(state)),
+     MRV("mrv", (state, rnd) -> new StrategyMRV(state)),
+     MINIMAX("minimax", (state, rnd) -> new StrategyMinimax(state, SEARCH_BUDGET_NANOS)),
+     MCTS("mcts", (state, rnd) -> new StrategyMCTS(state, SEARCH_BUDGET_NANOS, 1, false, rnd));
+
+     final String id;
+     private final Factory factory;
+
+     Player(String id, Factory factory) {
+         this.id = id;
+         this.factory = factory;
+     }
+
+     MoveEvaluator create(GameState state, SplittableRandom random) {
+         return factory.create(state, random);
+     }
+
+     static Player parse(String id) {
+         for (Player p : values()) {
+             if (p.id.equalsIgnoreCase(id) || p.name().equalsIgnoreCase(id)) return p;
+         }
+         throw new IllegalArgumentException("Unknown player: " + id);
+     }
+ }
+
+ interface Factory {
+     MoveEvaluator create(GameState state, SplittableRandom random);
+ }
+
+ /** Per-move budget for the search strategies; one search thread each, since games already run in parallel. */
+ static final long SEARCH_BUDGET_NANOS = 2_000_000;
+
+ static final int HUMAN_WINS = 1, CPU_WINS = -1, DRAW = 0;
+
+ private final Puzzle[] puzzles;
+ private final Player[] humanSide, cpuSide;
+ private final long seed;
+ private GameRecordFile.Writer recorder;
+
+ Tournament(Puzzle[] puzzles, Player[] humanSide, Player[] cpuSide, long seed) {
+     if (puzzles.length == 0) throw new IllegalArgumentException("Need at least one puzzle");
+     this.puzzles = puzzles;
+     this.humanSide = humanSide.clone();
+     this.cpuSide = cpuSide.clone();
+     this.seed = seed;
+ }
+
+ public int getPairingCount() { return humanSide.length * cpuSide.length; }
+ public Player getHumanPlayer(int pairing) { return humanSide[pairing / cpuSide.length]; }
+ public Player getCpuPlayer(int pairing) { return cpuSide[pairing % cpuSide.length]; }
+
+ /** Append every game played from now on to {@code recorder} (null to stop). */
+ public void setRecorder(GameRecordFile.Writer recorder) { this.recorder = recorder; }
+
+ /** Play {@code games} games in every pairing; results are indexed by pairing. */
+ public Stats[] run(int games) {
+     int size = puzzles[0].getSize();
+     return IntStream.range(0, games).parallel()
+         .collect(() -> new Worker(size), Worker::playAll, Worker::merge)
+         .stats;
+ }
+
+ //============================================================================
+ //GAME LOOP
+ //============================================================================
+ /**
+  * Play one game to the end, human side first, and return HUMAN_WINS,
+  * CPU_WINS or DRAW. {@code buffer} is a scratch move buffer of N*N*N entries.
+  */
+ static int play(GameState game, MoveEvaluator human, MoveEvaluator cpu, double[] buffer) {
+     boolean humanTurn = true;
+     while (!game.isGameOver()) {
+         game.setHumanTurn(humanTurn);
+         if (game.checkForDeadlock(humanTurn)) {
+             humanTurn = !humanTurn;
+             continue;
+         }
+         MoveEvaluator player = humanTurn ? human : cpu;
+         player.evaluateAll(buffer);
+         int[] move = player.selectBest(buffer);
+         if (move == null) break;
+         if (game.makeMove(move[0], move[1], move[2], humanTurn)) {
+             humanTurn = !humanTurn;
+         } else if (game.getGrid()[move[0]][move[1]] != 0) {
+             // A rejected conflict costs lives, so retrying always ends; a filled cell costs nothing
+             throw new IllegalStateException(player.getClass().getSimpleName() + " played a filled cell");
+         }
+     }
+     return outcome(game);
+ }
+
+ /** Winner of a finished game by the same rules as GameState.getWinner(). */
+ static int outcome(GameState game) {
+     int humanLives = game.getHumanLives(), cpuLives = game.getCpuLives();
+     if (humanLives <= 0 || cpuLives <= 0) {
+         if (humanLives <= 0 && cpuLives <= 0) return DRAW;
+         return humanLives <= 0 ? CPU_WINS : HUMAN_WINS;
+     }
+     int humanTotal = game.getHumanScore() + humanLives / 10;
+     int cpuTotal = game.getCpuScore() + cpuLives / 10;
+     return Integer.compare(humanTotal, cpuTotal);
+ }
+
+ // One per parallel-stream worker: its own tallies and move buffer
+ private final class Worker {
+     final Stats[] stats = new Stats[getPairingCount()];
+     final double[] buffer;
+
+     Worker(int size) {
+         for (int p = 0; p < stats.length; p++) stats[p] = new Stats();
+         buffer = MoveEvaluator.newBuffer(size);
+     }
+
+     void playAll(int gameIndex) {
+         Puzzle puzzle = puzzles[gameIndex % puzzles.length];
+         for (int p = 0; p < stats.length; p++) {
+             SplittableRandom random = new SplittableRandom(seed + gameIndex);
+             GameState game = puzzle.newGame();
+             MoveEvaluator human = getHumanPlayer(p).create(game, random.split());
+             MoveEvaluator cpu = getCpuPlayer(p).create(game, random.split());
+             int result = play(game, human, cpu, buffer);
+             stats[p].add(result, game);
+             if (recorder != null) record(game);
+         }
+     }
+
+     private void record(GameState game) {
+         try {
+             recorder.write(GameRecord.of(game));
+         } catch (IOException e) {
+             throw new UncheckedIOException(e);
+         }
+     }
+
+     void merge(Worker other) {
+         for (int p = 0; p < stats.length; p++) stats[p].merge(other.stats[p]);
+     }
+ }
+
+ //============================================================================
+ //STATS
+ //============================================================================
+ /** Win/draw/loss counts (from the human side) and end-of-game score and lives distributions. */
+ static final class Stats {
+     long games, humanWins, cpuWins, draws, moves;
+     final Histogram humanScore = new Histogram(), cpuScore = new Histogram();
+     final Histogram humanLives = new Histogram(), cpuLives = new Histogram();
+
+     void add(int result, GameState game) {
+         games++;
+         if (result == HUMAN_WINS) humanWins++;
+         else if (result == CPU_WINS) cpuWins++;
+         else draws++;
+         moves += game.getHistorySize();
+         humanScore.add(game.getHumanScore());
+         cpuScore.add(game.getCpuScore());
+         humanLives.add(game.getHumanLives());
+         cpuLives.add(game.getCpuLives());
+     }
+
+     void merge(Stats other) {
+         games += other.games;
+         humanWins += other.humanWins;
+         cpuWins += other.cpuWins;
+         draws += other.draws;
+         moves += other.moves;
+         humanScore.merge(other.humanScore);
+         cpuScore.merge(other.cpuScore);
+         humanLives.merge(other.humanLives);
+         cpuLives.merge(other.cpuLives);
+     }
+ }
+
+ /** Counts of small non-negative integers; values past the last bin are clamped into it. */
+ static final class Histogram {
+     private static final int BINS = 512;
+     private final long[] counts = new long[BINS];
+     private long total, sum;
+
+     void add(int value) {
+         counts[Math.max(0, Math.min(BINS - 1, value))]++;
+         total++;
+         sum += value;
+     }
+
+     void merge(Histogram other) {
+         for (int i = 0; i < BINS; i++) counts[i] += other.counts[i];
+         total += other.total;
+         sum += other.sum;
+     }
+
+     public double mean() { return total == 0 ? 0 : (double) sum / total; }
+
+     /** Smallest value with at least {@code fraction} of the samples at or below it. */
+     public int percentile(double fraction) {
+         long needed = (long) Math.ceil(fraction * total), seen = 0;
+         for (int i = 0; i < BINS; i++) {
+             seen += counts[i];
+             if (seen >= needed && seen > 0) return i;
+         }
+         return BINS - 1;
+     }
+
+     String summary() {
+         return String.format(Locale.ROOT, "%6.1f [%3d %3d %3d]", mean(), percentile(0.1), percentile(0.5), percentile(0.9));
+     }
+ }
+
+ //============================================================================
+ //COMMAND LINE
+ //============================================================================
+ private static Player[] parsePlayers(String list) {
+     List<Player> players = new ArrayList<>();
+     for (String id : list.split(",")) players.add(Player.parse(id.trim()));
+     return players.toArray(new Player[0]);
+ }
+
+ public static void main(String[] args) throws IOException {
+     if (args.length < 2) {
+         System.err.println("Usage: Tournament <size> <games per pairing> [puzzles] [human players] [cpu players] [seed] [record file]");
+         System.err.println("Players: random, greedy-human, lives, completion, score, mrv, minimax, mcts");
+         return;
+     }
+     int size = Integer.parseInt(args[0]);
+     int games = Integer.parseInt(args[1]);
+     int puzzleCount = args.length > 2 ? Integer.parseInt(args[2]) : Math.min(games, 1000);
+     Player[] human = parsePlayers(args.length > 3 ? args[3] : "random,greedy-human");
+     Player[] cpu = parsePlayers(args.length > 4 ? args[4] : "lives,completion,score,mrv");
+     long seed = args.length > 5 ? Long.parseLong(args[5]) : System.nanoTime();
+
+     long start = System.nanoTime();
+     Puzzle[] puzzles = new PuzzleGenerator(size).generate(puzzleCount, seed);
+     long generated = System.nanoTime();
+     Tournament tournament = new Tournament(puzzles, human, cpu, seed);
+     Stats[] results;
+     if (args.length > 6) {
+         try (GameRecordFile.Writer recorder = GameRecordFile.Writer.open(Path.of(args[6]))) {
+             tournament.setRecorder(recorder);
+             results = tournament.run(games);
+         }
+     } else {
+         results = tournament.run(games);
+     }
+     long finished = System.nanoTime();
+
+     System.out.printf(Locale.ROOT, "%dx%d, %d puzzles (%.1f s to generate), seed %d%n",
+         size, size, puzzleCount, (generated - start) / 1e9, seed);
+     System.out.println("Score and lives: mean [p10 p50 p90]");
+     System.out.printf(Locale.ROOT, "%-14s %-12s %7s %7s %7s %22s %22s %22s %22s%n",
+         "human", "cpu", "H-win", "draw", "C-win", "human score", "cpu score", "human lives", "cpu lives");
+     long totalGames = 0;
+     for (int p = 0; p < results.length; p++) {
+         Stats s = results[p];
+         totalGames += s.games;
+         System.out.printf(Locale.ROOT, "%-14s %-12s %6.1f%% %6.1f%% %6.1f%% %22s %22s %22s %22s%n",
+             tournament.getHumanPlayer(p).id, tournament.getCpuPlayer(p).id,
+             100.0 * s.humanWins / s.games, 100.0 * s.draws / s.games, 100.0 * s.cpuWins / s.games,
+             s.humanScore.summary(), s.cpuScore.summary(), s.humanLives.summary(), s.cpuLives.summary());
+     }
+     double seconds = (finished - generated) / 1e9;
+     System.out.printf(Locale.ROOT, "%d games in %.2f s on %d cores: %.0f games/min%n",
+         totalGames, seconds, Runtime.getRuntime().availableProcessors(), totalGames / seconds * 60);
+ }
+}
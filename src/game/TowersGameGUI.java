@@ -4,23 +4,39 @@ import javax.swing.*;
 import javax.swing.Timer;
 import java.awt.*;
 import java.awt.event.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 // ============================================================================
 // MAIN GUI - Towers Puzzle Game (4x4) with 4 Greedy Strategies
 // ============================================================================
 
 public class TowersGameGUI extends JFrame {
-    private static final int N = 4;
     private static final int[] TOP    = {2, 1, 4, 2};
     private static final int[] RIGHT  = {2, 1, 3, 2};
     private static final int[] BOTTOM = {2,3,1,3};
     private static final int[] LEFT   = {2, 3, 1, 2};
+    private static final int N = TOP.length;
+    private static final long CPU_THINK_MILLIS = 150;  // search strategies stop here; greedy ones finish at once
+
+    // Current clues: the fixed board above for the first game, a generated one after "New Game"
+    private final PuzzleGenerator generator = new PuzzleGenerator(N);
+    private final java.util.SplittableRandom random = new java.util.SplittableRandom();
+    private int[] top = TOP, right = RIGHT, bottom = BOTTOM, left = LEFT;
+    private JLabel[][] clueLabels = new JLabel[4][N];  // top, right, bottom, left
 
     private GameState gameState;
     private StrategyLives strategyLives;
     private StrategyCompletion strategyCompletion;
     private StrategyScore strategyScore;
     private StrategyMRV strategyMRV;
+    private StrategyMinimax strategyMinimax;
+    private StrategyMCTS strategyMCTS;
+
+    // Finished games go to this file when -Dtowers.recordFile=<path> is set
+    private GameRecordFile.Writer recorder;
+    private boolean gameRecorded;
 
     private int selectedRow = -1, selectedCol = -1;
 
@@ -36,7 +52,9 @@ public class TowersGameGUI extends JFrame {
         LIVES("Lives-Greedy (Survival)"),
         COMPLETION("Completion-Greedy (Rusher)"),
         SCORE("Score-Greedy (Gambler)"),
-        MRV("Constraint-Greedy (MRV)");
+        MRV("Constraint-Greedy (MRV)"),
+        MINIMAX("Minimax (Lookahead)"),
+        MCTS("Monte Carlo (Playouts)");
 
         private final String name;
         Strategy(String n) { name = n; }
@@ -47,12 +65,28 @@ public class TowersGameGUI extends JFrame {
     private boolean showHeatMap = true;
     private double[][] heatMapValues = new double[N][N];
 
+    // One evaluation per turn: the heat map and the CPU move both read this buffer
+    private double[] moveScores = MoveEvaluator.newBuffer(N);
+    private Strategy scoredStrategy = null;
+    private GameState scoredState = null;
+    private long scoredRevision = -1;
+    private boolean scoredHumanTurn;
+
+    // Evaluations run here, one at a time, so the EDT keeps painting during a search
+    private final ExecutorService searcher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "cpu-search");
+        t.setDaemon(true);
+        return t;
+    });
+    private int searching = 0;  // evaluations not finished yet; moves and strategy changes wait for 0
+
     public TowersGameGUI() {
-        setTitle("Towers Puzzle - 4×4 with 4 AI Strategies");
+        setTitle("Towers Puzzle - " + N + "×" + N + " with 6 AI Strategies");
         setDefaultCloseOperation(EXIT_ON_CLOSE);
         setLayout(new BorderLayout(15, 15));
         getContentPane().setBackground(new Color(245, 245, 250));
 
+        openRecorder();
         initGame();
         initComponents();
 
@@ -67,11 +101,43 @@ public class TowersGameGUI extends JFrame {
     // ============================================================================
 
     private void initGame() {
-        gameState = new GameState(TOP, RIGHT, BOTTOM, LEFT);
+        // Every clue set should describe exactly one solution before play starts
+        int solutions = new SkyscraperSolver(top, right, bottom, left).countSolutions(2);
+        if (solutions != 1) {
+            System.err.println("Warning: clue set has " + (solutions == 0 ? "no solution" : "more than one solution"));
+        }
+
+        gameState = new GameState(top, right, bottom, left);
         strategyLives = new StrategyLives(gameState);
         strategyCompletion = new StrategyCompletion(gameState);
         strategyScore = new StrategyScore(gameState);
         strategyMRV = new StrategyMRV(gameState);
+        strategyMinimax = new StrategyMinimax(gameState);
+        strategyMCTS = new StrategyMCTS(gameState);
+        gameRecorded = false;
+    }
+
+    private void openRecorder() {
+        String file = System.getProperty("towers.recordFile");
+        if (file == null) return;
+        try {
+            recorder = GameRecordFile.Writer.open(java.nio.file.Path.of(file));
+        } catch (java.io.IOException e) {
+            System.err.println("Warning: not recording games: " + e.getMessage());
+        }
+    }
+
+    // Once per game, when it ends or is abandoned for a new one
+    private void recordGame() {
+        if (recorder == null || gameRecorded || gameState.getHistorySize() == 0) return;
+        gameRecorded = true;
+        try {
+            recorder.write(GameRecord.of(gameState));
+            recorder.flush();
+        } catch (java.io.IOException e) {
+            System.err.println("Warning: game recording stopped: " + e.getMessage());
+            recorder = null;
+        }
     }
 
     // ============================================================================
@@ -105,13 +171,13 @@ public class TowersGameGUI extends JFrame {
         // Top clues
         for (int i = 0; i < N; i++) {
             gbc.gridx = i + 1; gbc.gridy = 0;
-            boardPanel.add(createClue(TOP[i]), gbc);
+            boardPanel.add(clueLabels[0][i] = createClue(top[i]), gbc);
         }
 
         // Board with left/right clues
         for (int r = 0; r < N; r++) {
             gbc.gridx = 0; gbc.gridy = r + 1;
-            boardPanel.add(createClue(LEFT[r]), gbc);
+            boardPanel.add(clueLabels[3][r] = createClue(left[r]), gbc);
 
             for (int c = 0; c < N; c++) {
                 final int row = r, col = c;
@@ -129,13 +195,13 @@ public class TowersGameGUI extends JFrame {
             }
 
             gbc.gridx = N + 1; gbc.gridy = r + 1;
-            boardPanel.add(createClue(RIGHT[r]), gbc);
+            boardPanel.add(clueLabels[1][r] = createClue(right[r]), gbc);
         }
 
         // Bottom clues
         for (int i = 0; i < N; i++) {
             gbc.gridx = i + 1; gbc.gridy = N + 1;
-            boardPanel.add(createClue(BOTTOM[i]), gbc);
+            boardPanel.add(clueLabels[2][i] = createClue(bottom[i]), gbc);
         }
         add(boardPanel, BorderLayout.CENTER);
 
@@ -156,8 +222,7 @@ public class TowersGameGUI extends JFrame {
         strategyCombo.setAlignmentX(LEFT_ALIGNMENT);
         strategyCombo.addActionListener(e -> {
             currentStrategy = Strategy.values()[strategyCombo.getSelectedIndex()];
-            updateHeatMap();
-            updateDisplay();
+            updateHeatMap(this::updateDisplay);
         });
 
         heatMapToggle = new JCheckBox("Show Heat Map", true);
@@ -219,7 +284,7 @@ public class TowersGameGUI extends JFrame {
             "Select Value", 0, 0, new Font("Arial", Font.BOLD, 14), new Color(59,130,246)));
         valueSelectionPanel.setVisible(false);
 
-        JPanel valGrid = new JPanel(new GridLayout(2, 2, 12, 12));
+        JPanel valGrid = new JPanel(new GridLayout((N + 1) / 2, 2, 12, 12));
         valGrid.setOpaque(false);
         for (int i = 0; i < N; i++) {
             final int val = i + 1;
@@ -279,8 +344,12 @@ public class TowersGameGUI extends JFrame {
         return l;
     }
 
+    private static String clueText(int v) {
+        return v == 0 ? "" : String.valueOf(v);  // 0 = no clue
+    }
+
     private JLabel createClue(int v) {
-        JLabel l = new JLabel(String.valueOf(v), SwingConstants.CENTER);
+        JLabel l = new JLabel(clueText(v), SwingConstants.CENTER);
         l.setFont(new Font("Arial", Font.BOLD, 22));
         l.setForeground(new Color(79, 70, 229));
         l.setPreferredSize(new Dimension(50, 50));
@@ -292,7 +361,7 @@ public class TowersGameGUI extends JFrame {
     // ============================================================================
 
     private void handleCellClick(int r, int c) {
-        if (!gameState.isHumanTurn() || gameState.isGameOver() || gameState.getGrid()[r][c] != 0) {
+        if (searching > 0 || !gameState.isHumanTurn() || gameState.isGameOver() || gameState.getGrid()[r][c] != 0) {
             return;
         }
         selectedRow = r;
@@ -376,7 +445,7 @@ public class TowersGameGUI extends JFrame {
     
     
     private void handleValueClick(int val) {
-        if (selectedRow == -1) return;
+        if (selectedRow == -1 || searching > 0) return;
 
         // Check for deadlock BEFORE allowing move
         if (gameState.checkForDeadlock(true)) {
@@ -388,10 +457,7 @@ public class TowersGameGUI extends JFrame {
             updateDisplay();
             
             Timer delay = new Timer(1500, e -> {
-                if (!checkGameEnd()) {
-                    updateHeatMap();
-                    animateHeatMap(0);
-                }
+                if (!checkGameEnd()) updateHeatMap(() -> animateHeatMap(0));
             });
             delay.setRepeats(false);
             delay.start();
@@ -417,10 +483,7 @@ public class TowersGameGUI extends JFrame {
 
         // ⭐ Only proceed to CPU turn if move was accepted
         if (moveAccepted) {
-            Timer delay = new Timer(600, e -> {
-                updateHeatMap();
-                animateHeatMap(0);
-            });
+            Timer delay = new Timer(600, e -> updateHeatMap(() -> animateHeatMap(0)));
             delay.setRepeats(false);
             delay.start();
         }
@@ -435,10 +498,11 @@ public class TowersGameGUI extends JFrame {
             Timer delay = new Timer(1200, e -> {
                 clearHeatMap();
                 if (!gameState.isGameOver()) {
-                    doCPUMove();
-                    gameState.setHumanTurn(true);
-                    updateDisplay();
-                    checkGameEnd();
+                    doCPUMove(() -> {
+                        gameState.setHumanTurn(true);
+                        updateDisplay();
+                        checkGameEnd();
+                    });
                 }
             });
             delay.setRepeats(false);
@@ -466,6 +530,8 @@ public class TowersGameGUI extends JFrame {
             case COMPLETION ->  new Color(239 + (int)(15 * ratio), 68 + (int)(82 * ratio), 68 + (int)(82 * ratio));       // Red
             case SCORE ->       new Color(255, 165 + (int)(90 * ratio), 0);                                               // Gold → Orange
             case MRV ->         new Color(130 + (int)(56 * ratio), 39, 144 + (int)(64 * ratio));                          // Purple
+            case MINIMAX ->     new Color(14 + (int)(50 * ratio), 116 + (int)(90 * ratio), 144 + (int)(90 * ratio));      // Teal
+            case MCTS ->        new Color(99 + (int)(100 * ratio), 102 + (int)(100 * ratio), 241);                        // Indigo
         };
     }
 
@@ -485,47 +551,101 @@ public class TowersGameGUI extends JFrame {
     // CPU MOVE
     // ============================================================================
 
-    private void doCPUMove() {
+    /** Play the CPU's move, then run {@code then} on the EDT. */
+    private void doCPUMove(Runnable then) {
     	
     	
         if (gameState.checkForDeadlock(false)) {
             statusLabel.setText("CPU has no legal moves! -5 lives, skipping turn");
             gameState.setHumanTurn(true);
             updateDisplay();
+            then.run();
             return;
         }
-        int[] move = switch (currentStrategy) {
-            case LIVES -> strategyLives.findBestMove();
-            case COMPLETION -> strategyCompletion.findBestMove();
-            case SCORE -> strategyScore.findBestMove();
-            case MRV -> strategyMRV.findBestMove();
+        scoreMoves(() -> {
+            int[] move = currentEvaluator().selectBest(moveScores);
+
+            if (move == null) {
+                gameState.setStatusMessage("CPU has no valid moves!");
+                updateDisplay();
+            } else {
+                reasoningArea.setText(gameState.getCpuReasoningExplanation());
+                gameState.makeMove(move[0], move[1], move[2], false);
+            }
+            then.run();
+        });
+    }
+
+    // ============================================================================
+    // HEAT MAP CALCULATION
+    // ============================================================================
+
+    private MoveEvaluator currentEvaluator() {
+        return switch (currentStrategy) {
+            case LIVES -> strategyLives;
+            case COMPLETION -> strategyCompletion;
+            case SCORE -> strategyScore;
+            case MRV -> strategyMRV;
+            case MINIMAX -> strategyMinimax;
+            case MCTS -> strategyMCTS;
         };
+    }
 
-        if (move == null) {
-            gameState.setStatusMessage("CPU has no valid moves!");
-            updateDisplay();
+    /**
+     * Re-evaluate the board only if the game, the position, the side to move or
+     * the strategy changed since the last pass, then run {@code then} on the EDT.
+     * The evaluation runs on the searcher thread; {@code then} is dropped if a
+     * new game started in the meantime.
+     */
+    private void scoreMoves(Runnable then) {
+        GameState state = gameState;
+        Strategy strategy = currentStrategy;
+        long revision = state.getRevision();
+        boolean humanTurn = state.isHumanTurn();
+        if (scoredState == state && scoredStrategy == strategy
+                && scoredRevision == revision && scoredHumanTurn == humanTurn) {
+            then.run();
             return;
         }
+        MoveEvaluator evaluator = currentEvaluator();
+        setSearching(searching + 1);
+        CompletableFuture.supplyAsync(() -> {
+            double[] scores = MoveEvaluator.newBuffer(N);
+            evaluator.evaluateAll(scores, Deadline.afterMillis(CPU_THINK_MILLIS));
+            return scores;
+        }, searcher).whenComplete((scores, error) -> SwingUtilities.invokeLater(() -> {
+            setSearching(searching - 1);
+            if (error != null) throw new IllegalStateException("Move evaluation failed", error);
+            if (state != gameState) return;  // a new game started meanwhile
+            moveScores = scores;
+            scoredState = state;
+            scoredStrategy = strategy;
+            scoredRevision = revision;
+            scoredHumanTurn = humanTurn;
+            then.run();
+        }));
+    }
 
-        reasoningArea.setText(gameState.getCpuReasoningExplanation());
-        gameState.makeMove(move[0], move[1], move[2], false);
+    // The board must not change under a running evaluation, so the strategy waits too
+    private void setSearching(int count) {
+        searching = count;
+        strategyCombo.setEnabled(count == 0);
     }
 
-    // ============================================================================
-    // HEAT MAP CALCULATION
-    // ============================================================================
+    /** Recompute the heat map from a fresh evaluation, then run {@code then} on the EDT. */
+    private void updateHeatMap(Runnable then) {
+        scoreMoves(() -> {
+            fillHeatMap();
+            then.run();
+        });
+    }
 
-    private void updateHeatMap() {
+    private void fillHeatMap() {
         double max = 0;
         for (int r = 0; r < N; r++) {
             for (int c = 0; c < N; c++) {
                 if (gameState.getGrid()[r][c] == 0) {
-                    double score = switch (currentStrategy) {
-                        case LIVES -> strategyLives.evaluateCell(r, c);
-                        case COMPLETION -> strategyCompletion.evaluateCell(r, c);
-                        case SCORE -> strategyScore.evaluateCell(r, c);
-                        case MRV -> strategyMRV.evaluateCell(r, c);
-                    };
+                    double score = MoveEvaluator.cellScore(moveScores, N, r, c);
                     heatMapValues[r][c] = score;
                     max = Math.max(max, score);
                 } else {
@@ -593,6 +713,7 @@ public class TowersGameGUI extends JFrame {
 
     private boolean checkGameEnd() {
         if (gameState.isGameOver()) {
+            recordGame();
             String winner = gameState.getWinner();
             if (winner == null) winner = "Game Over";
 
@@ -611,14 +732,29 @@ public class TowersGameGUI extends JFrame {
     }
 
     private void resetGame() {
+        recordGame();
+        Puzzle puzzle = generator.generate(random);
+        top = puzzle.getTopClues();
+        right = puzzle.getRightClues();
+        bottom = puzzle.getBottomClues();
+        left = puzzle.getLeftClues();
+        int[][] clues = {top, right, bottom, left};
+        for (int side = 0; side < 4; side++) {
+            for (int i = 0; i < N; i++) clueLabels[side][i].setText(clueText(clues[side][i]));
+        }
+
         initGame();
+        scoredStrategy = null;
         selectedRow = -1;
         selectedCol = -1;
         valueSelectionPanel.setVisible(false);
         reasoningArea.setText("Select a strategy and watch the CPU think...");
-        updateHeatMap();
         updateDisplay();
         statusLabel.setText("New game started! Your turn.");
+        updateHeatMap(() -> {
+            updateDisplay();
+            statusLabel.setText("New game started! Your turn.");
+        });
     }
 
     // ============================================================================
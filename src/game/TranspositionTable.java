@@ -0,0 +1,80 @@
+package game;
+
+//============================================================================
+//TRANSPOSITION TABLE (fixed size, lock-free, replace-by-depth)
+//============================================================================
+/**
+ * Search results keyed by Zobrist hash, in one long[] with two slots per
+ * entry: (key ^ data, data). Threads read and write without locks; a torn or
+ * concurrently overwritten entry no longer XORs back to its key and simply
+ * reads as a miss.
+ *
+ * data layout (see pack): bits 0-31 value, 32-39 depth, 40-41 bound,
+ * 42-49 move cell, 50-53 move value, 54-61 search generation. A stored
+ * entry is replaced by a deeper or equally deep result, or by anything once
+ * it is from an older generation (see newSearch).
+ */
+final class TranspositionTable {
+ static final int EXACT = 1, LOWER = 2, UPPER = 3;  // 0 = empty slot
+ static final int NO_CELL = 0xFF;
+
+ private final long[] table;
+ private final int mask;
+ private volatile int generation = 0;
+
+ /** Table with at least {@code entries} slots (rounded up to a power of two). */
+ TranspositionTable(int entries) {
+     int n = Integer.highestOneBit(Math.max(1, entries - 1)) << 1;
+     if (n <= 0 || n > (1 << 29)) throw new IllegalArgumentException("Unsupported table size " + entries);
+     table = new long[2 * n];
+     mask = n - 1;
+ }
+
+ public int capacity() { return mask + 1; }
+
+ /** Start a new search: entries from earlier searches become replaceable. */
+ public void newSearch() {
+     generation = (generation + 1) & 0xFF;
+ }
+
+ public void clear() {
+     java.util.Arrays.fill(table, 0);
+ }
+
+ /** Stored data for {@code key}, or 0 if there is none. */
+ public long probe(long key) {
+     int i = index(key);
+     long data = table[i + 1];
+     return (table[i] ^ data) == key ? data : 0;
+ }
+
+ public void store(long key, int value, int depth, int bound, int moveCell, int moveValue) {
+     int i = index(key);
+     long old = table[i + 1];
+     if (old != 0 && generation(old) == generation && depth(old) > depth) return;
+     long data = pack(value, depth, bound, moveCell, moveValue, generation);
+     table[i] = key ^ data;
+     table[i + 1] = data;
+ }
+
+ private int index(long key) {
+     return ((int) (key ^ (key >>> 32)) & mask) << 1;
+ }
+
+ // === DATA DECODERS ===
+ static long pack(int value, int depth, int bound, int moveCell, int moveValue, int generation) {
+     return (value & 0xFFFFFFFFL)
+             | (long) Math.min(depth, 0xFF) << 32
+             | (long) (bound & 0x3) << 40
+             | (long) (moveCell & 0xFF) << 42
+             | (long) (moveValue & 0xF) << 50
+             | (long) (generation & 0xFF) << 54;
+ }
+
+ static int value(long data) { return (int) data; }
+ static int depth(long data) { return (int) (data >>> 32) & 0xFF; }
+ static int bound(long data) { return (int) (data >>> 40) & 0x3; }
+ static int moveCell(long data) { return (int) (data >>> 42) & 0xFF; }
+ static int moveValue(long data) { return (int) (data >>> 50) & 0xF; }
+ private static int generation(long data) { return (int) (data >>> 54) & 0xFF; }
+}
@@ -0,0 +1,250 @@
+package game;
+
+//============================================================================
+//VISIBILITY TABLE (precomputed skyscraper lines per board size)
+//============================================================================
+/**
+ * Every permutation of 1..N in lexicographic order, with how many towers are
+ * visible from each end. Lines are grouped by clue pair (front, back) and each
+ * group carries per-position allowed-value masks (bit v-1 = value v). A clue of
+ * 0 means "no clue" and matches any count. One immutable table per N is shared.
+ */
+class VisibilityTable {
+ private static final VisibilityTable[] SHARED = new VisibilityTable[TowersConstraintGraph.MAX_SIZE + 1];
+
+ private final int size;
+ private final int lineCount;
+ private final byte[] lines;          // lineCount * size values
+ private final long[] packedLines;   // same lines in packed form, see packRow
+ private final byte[] visibleFront;
+ private final byte[] visibleBack;
+ private final int[] factorials;
+ private final int[][] linesByClue;   // [pairIndex] -> line indices
+ private final int[][] allowedByClue; // [pairIndex] -> per-position value masks
+
+ private VisibilityTable(int size) {
+     this.size = size;
+     factorials = new int[size + 1];
+     factorials[0] = 1;
+     for (int i = 1; i <= size; i++) factorials[i] = factorials[i - 1] * i;
+     lineCount = factorials[size];
+
+     lines = new byte[lineCount * size];
+     packedLines = new long[lineCount];
+     visibleFront = new byte[lineCount];
+     visibleBack = new byte[lineCount];
+
+     int pairs = (size + 1) * (size + 1);
+     int[] groupSizes = new int[pairs];
+     int[] perm = new int[size];
+     for (int i = 0; i < size; i++) perm[i] = i + 1;
+
+     for (int p = 0; p < lineCount; p++) {
+         int front = 0, back = 0, maxF = 0, maxB = 0;
+         for (int i = 0; i < size; i++) {
+             lines[p * size + i] = (byte) perm[i];
+             packedLines[p] |= (long) perm[i] << (4 * i);
+             if (perm[i] > maxF) { maxF = perm[i]; front++; }
+             int j = size - 1 - i;
+             if (perm[j] > maxB) { maxB = perm[j]; back++; }
+         }
+         visibleFront[p] = (byte) front;
+         visibleBack[p] = (byte) back;
+         groupSizes[pairIndex(front, back)]++;
+         groupSizes[pairIndex(0, back)]++;
+         groupSizes[pairIndex(front, 0)]++;
+         groupSizes[pairIndex(0, 0)]++;
+         nextPermutation(perm);
+     }
+
+     linesByClue = new int[pairs][];
+     allowedByClue = new int[pairs][];
+     for (int k = 0; k < pairs; k++) {
+         linesByClue[k] = new int[groupSizes[k]];
+         allowedByClue[k] = new int[size];
+         groupSizes[k] = 0;
+     }
+     for (int p = 0; p < lineCount; p++) {
+         int front = visibleFront[p], back = visibleBack[p];
+         addLine(pairIndex(front, back), p, groupSizes);
+         addLine(pairIndex(0, back), p, groupSizes);
+         addLine(pairIndex(front, 0), p, groupSizes);
+         addLine(pairIndex(0, 0), p, groupSizes);
+     }
+ }
+
+ private void addLine(int pair, int line, int[] fill) {
+     linesByClue[pair][fill[pair]++] = line;
+     int[] allowed = allowedByClue[pair];
+     for (int i = 0; i < size; i++) allowed[i] |= 1 << (lines[line * size + i] - 1);
+ }
+
+ private static void nextPermutation(int[] a) {
+     int i = a.length - 2;
+     while (i >= 0 && a[i] >= a[i + 1]) i--;
+     if (i < 0) return;
+     int j = a.length - 1;
+     while (a[j] <= a[i]) j--;
+     int t = a[i]; a[i] = a[j]; a[j] = t;
+     for (int l = i + 1, r = a.length - 1; l < r; l++, r--) {
+         t = a[l]; a[l] = a[r]; a[r] = t;
+     }
+ }
+
+ /** Shared table for an N x N board, built on first use. */
+ static VisibilityTable forSize(int size) {
+     TowersConstraintGraph.forSize(size);  // validates the size
+     synchronized (SHARED) {
+         if (SHARED[size] == null) SHARED[size] = new VisibilityTable(size);
+         return SHARED[size];
+     }
+ }
+
+ public int getSize() { return size; }
+ public int getLineCount() { return lineCount; }
+ public int getValue(int line, int position) { return lines[line * size + position]; }
+ public int getVisibleFront(int line) { return visibleFront[line]; }
+ public int getVisibleBack(int line) { return visibleBack[line]; }
+
+ private int pairIndex(int front, int back) {
+     return front * (size + 1) + back;
+ }
+
+ private boolean validClue(int clue) {
+     return clue >= 0 && clue <= size;
+ }
+
+ // === LOOKUPS ===
+ /** Indices of all lines matching the clue pair (0 = unconstrained); empty for impossible clues. */
+ public int[] linesFor(int front, int back) {
+     if (!validClue(front) || !validClue(back)) return new int[0];
+     return linesByClue[pairIndex(front, back)];
+ }
+
+ /** Values that appear at {@code position} in some line matching the clue pair. */
+ public int allowedMask(int front, int back, int position) {
+     if (!validClue(front) || !validClue(back)) return 0;
+     return allowedByClue[pairIndex(front, back)][position];
+ }
+
+ /**
+  * For a line whose positions may take the values in {@code domains[0..N-1]},
+  * the values each position takes in some line that matches the clue pair and
+  * fits every domain, into {@code out}. All zero if no line fits. The scan
+  * stops as soon as every domain value has a supporting line.
+  */
+ public void supportedMasks(int front, int back, int[] domains, int[] out) {
+     for (int i = 0; i < size; i++) out[i] = 0;
+     if (!validClue(front) || !validClue(back)) return;
+     for (int line : linesByClue[pairIndex(front, back)]) {
+         int base = line * size;
+         int i = 0;
+         while (i < size && (domains[i] & (1 << (lines[base + i] - 1))) != 0) i++;
+         if (i < size) continue;
+         boolean complete = true;
+         for (i = 0; i < size; i++) {
+             out[i] |= 1 << (lines[base + i] - 1);
+             complete &= out[i] == domains[i];
+         }
+         if (complete) return;
+     }
+ }
+
+ public boolean matches(int line, int front, int back) {
+     return (front == 0 || visibleFront[line] == front) && (back == 0 || visibleBack[line] == back);
+ }
+
+ // === PACKED LINES ===
+ // A line is packed 4 bits per position (position i in bits 4i..4i+3, 0 = empty),
+ // so rows and columns can be handed to the table without allocating.
+ static long packRow(int[][] grid, int row) {
+     long packed = 0;
+     for (int c = grid[row].length - 1; c >= 0; c--) packed = (packed << 4) | grid[row][c];
+     return packed;
+ }
+
+ static long packColumn(int[][] grid, int col) {
+     long packed = 0;
+     for (int r = grid.length - 1; r >= 0; r--) packed = (packed << 4) | grid[r][col];
+     return packed;
+ }
+
+ /** Lexicographic rank of a packed line, or -1 if it is not a permutation of 1..N (e.g. has gaps). */
+ public int rank(long packed) {
+     int used = 0, rank = 0;
+     for (int i = 0; i < size; i++) {
+         int v = (int) (packed >>> (4 * i)) & 0xF;
+         if (v < 1 || v > size || (used & (1 << (v - 1))) != 0) return -1;
+         rank += Integer.bitCount(~used & ((1 << (v - 1)) - 1)) * factorials[size - 1 - i];
+         used |= 1 << (v - 1);
+     }
+     return rank;
+ }
+
+ /** Does a complete packed line show exactly the clue pair (0 = unconstrained)? */
+ public boolean isValid(long packed, int front, int back) {
+     int line = rank(packed);
+     return line >= 0 && matches(line, front, back);
+ }
+
+ /**
+  * For a partially filled packed line, the values each position can take in
+  * some completion that matches the clue pair, into {@code out[0..N-1]}
+  * (a filled position gets just its own value). Returns false, with every
+  * mask 0, if no completion matches; filled cells must also be distinct.
+  */
+ public boolean completionMasks(long packed, int front, int back, int[] out) {
+     for (int i = 0; i < size; i++) out[i] = 0;
+     if (!validClue(front) || !validClue(back)) return false;
+     int pair = pairIndex(front, back);
+     int[] allowed = allowedByClue[pair];
+     long filledMask = 0;
+     for (int i = 0; i < size; i++) {
+         int v = (int) (packed >>> (4 * i)) & 0xF;
+         if (v == 0) continue;
+         if ((allowed[i] & (1 << (v - 1))) == 0) return false;
+         filledMask |= 0xFL << (4 * i);
+     }
+     if (filledMask == 0) {
+         System.arraycopy(allowed, 0, out, 0, size);
+         return linesByClue[pair].length > 0;
+     }
+
+     boolean any = false;
+     for (int line : linesByClue[pair]) {
+         if ((packedLines[line] & filledMask) != packed) continue;
+         any = true;
+         int base = line * size;
+         for (int i = 0; i < size; i++) out[i] |= 1 << (lines[base + i] - 1);
+     }
+     return any;
+ }
+
+ /**
+  * Narrow per-position domains (value masks, bit v-1) to the values used by
+  * lines that match the clue pair and fit every domain. {@code scratch} needs
+  * N slots. Returns false if no such line exists.
+  */
+ public boolean filterDomains(int[] domains, int[] scratch, int front, int back) {
+     if (!validClue(front) || !validClue(back)) return false;
+     int pair = pairIndex(front, back);
+     int[] allowed = allowedByClue[pair];
+     for (int i = 0; i < size; i++) {
+         if ((domains[i] &= allowed[i]) == 0) return false;
+         scratch[i] = 0;
+     }
+
+     boolean any = false;
+     for (int line : linesByClue[pair]) {
+         int base = line * size;
+         int i = 0;
+         while (i < size && (domains[i] & (1 << (lines[base + i] - 1))) != 0) i++;
+         if (i < size) continue;
+         any = true;
+         for (i = 0; i < size; i++) scratch[i] |= 1 << (lines[base + i] - 1);
+     }
+     if (!any) return false;
+     System.arraycopy(scratch, 0, domains, 0, size);
+     return true;
+ }
+}
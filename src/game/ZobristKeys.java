@@ -0,0 +1,69 @@
+package game;
+
+import java.util.SplittableRandom;
+
+//============================================================================
+//ZOBRIST KEYS (random 64-bit keys for position hashing)
+//============================================================================
+/**
+ * Keys for hashing a game position as the XOR of its features: one key per
+ * (cell, value), one for "human to move", and one per player for the bucket
+ * its score and lives fall into. Scores and lives are bucketed so positions
+ * that differ by a point or two still meet in the transposition table.
+ *
+ * Keys come from a fixed seed per board size, so a position hashes the same
+ * in every run. They do not cover the clues: a table shared between
+ * different puzzles of the same size must be cleared first.
+ */
+final class ZobristKeys {
+ static final int SCORE_BUCKET = 5;
+ static final int LIVES_BUCKET = 5;
+ private static final int BUCKETS = 64;  // higher scores/lives share the last bucket
+ private static final ZobristKeys[] SHARED = new ZobristKeys[TowersConstraintGraph.MAX_SIZE + 1];
+
+ private final int size;
+ private final long[] cellKeys;   // [(cell * N) + value - 1]
+ private final long humanToMove;
+ private final long[] scoreKeys;  // [player * BUCKETS + bucket], player 0 = human
+ private final long[] livesKeys;
+
+ private ZobristKeys(int size) {
+     this.size = size;
+     SplittableRandom rnd = new SplittableRandom(0x70E5L * 31 + size);
+     cellKeys = new long[size * size * size];
+     for (int i = 0; i < cellKeys.length; i++) cellKeys[i] = rnd.nextLong();
+     humanToMove = rnd.nextLong();
+     scoreKeys = new long[2 * BUCKETS];
+     livesKeys = new long[2 * BUCKETS];
+     for (int i = 0; i < scoreKeys.length; i++) {
+         scoreKeys[i] = rnd.nextLong();
+         livesKeys[i] = rnd.nextLong();
+     }
+ }
+
+ static ZobristKeys forSize(int size) {
+     TowersConstraintGraph.forSize(size);  // validates the size
+     synchronized (SHARED) {
+         if (SHARED[size] == null) SHARED[size] = new ZobristKeys(size);
+         return SHARED[size];
+     }
+ }
+
+ long cell(int cell, int value) {
+     return cellKeys[cell * size + value - 1];
+ }
+
+ long humanToMove() {
+     return humanToMove;
+ }
+
+ /** Key for one player's score and lives buckets. */
+ long stats(boolean isHuman, int score, int lives) {
+     int base = isHuman ? 0 : BUCKETS;
+     return scoreKeys[base + bucket(score, SCORE_BUCKET)] ^ livesKeys[base + bucket(lives, LIVES_BUCKET)];
+ }
+
+ private static int bucket(int amount, int width) {
+     return Math.min(BUCKETS - 1, Math.max(0, amount) / width);
+ }
+}
@@ -6,4 +6,5 @@
  */
 module GreedyTOWERS {
 	requires java.desktop;
+	requires jdk.management;
 }
\ No newline at end of file